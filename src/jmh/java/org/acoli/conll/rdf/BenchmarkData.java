@@ -0,0 +1,89 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Input data shared by the benchmarks: the first sentences of the UD English dev set in data/ud,
+ * as CoNLL-U and as CoNLL-RDF. The benchmarks are run from the project directory.
+ */
+final class BenchmarkData {
+	static final String UD_DEV = "data/ud/UD_English-master/en-ud-dev.conllu.gz";
+	static final String BASE_URI = "https://github.com/UniversalDependencies/UD_English#";
+	static final List<String> UD_COLUMNS = Arrays.asList("ID", "WORD", "LEMMA", "UPOS", "POS", "FEAT", "HEAD", "EDGE", "DEPS", "MISC");
+	/** the updates of examples/analyze-ud.json, minus remove-IGNORE.sparql, which is a no-op with UD_COLUMNS */
+	static final List<String> ANALYZE_UPDATES = Arrays.asList(
+			"examples/sparql/analyze/UPOS-to-POSsynt.sparql",
+			"examples/sparql/analyze/EDGE-to-POSsynt.sparql",
+			"examples/sparql/analyze/consolidate-POSsynt.sparql");
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * @return the first <code>sentences</code> sentences of the UD English dev set, each followed by an empty line
+	 */
+	static String conll(int sentences) throws IOException {
+		StringBuilder result = new StringBuilder();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new FileInputStream(UD_DEV)), StandardCharsets.UTF_8))) {
+			int n = 0;
+			for (String line = in.readLine(); line != null && n < sentences; line = in.readLine()) {
+				result.append(line).append('\n');
+				if (line.trim().isEmpty())
+					n++;
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return the same sentences as {@link #conll(int)}, converted by CoNLLStreamExtractor
+	 */
+	static String conllRdf(int sentences) throws IOException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractor();
+		extractor.setBaseURI(BASE_URI);
+		extractor.setColumns(new ArrayList<String>(UD_COLUMNS));
+		extractor.setInputStream(new BufferedReader(new StringReader(conll(sentences))));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		extractor.processSentenceStream();
+		return out.toString("UTF-8");
+	}
+
+	/**
+	 * @return the sentences of {@link #conllRdf(int)}, as CoNLLRDFFormatter.processSentenceStream() buffers them
+	 */
+	static List<String> conllRdfSentences(int sentences) throws IOException {
+		List<String> result = new ArrayList<String>();
+		CoNLLRDFFormatter.frameSentences(new BufferedReader(new StringReader(conllRdf(sentences))), (buffer, last) -> {
+			if (!buffer.trim().equals(""))
+				result.add(buffer);
+		});
+		return result;
+	}
+
+	/** discards all output, so that the benchmarks measure processing rather than I/O */
+	static PrintStream nullStream() {
+		return new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+	}
+}
@@ -0,0 +1,55 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of a block of CoNLL-U, to Turtle text and to a Jena model.
+ * One operation converts all <code>sentences</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CoNLL2RDFBenchmark {
+	@Param({ "100" })
+	int sentences;
+
+	private String conll;
+	private String[] columns;
+
+	@Setup
+	public void setup() throws IOException {
+		conll = BenchmarkData.conll(sentences);
+		columns = BenchmarkData.UD_COLUMNS.toArray(new String[0]);
+	}
+
+	@Benchmark
+	public String conll2ttl() throws IOException {
+		StringWriter out = new StringWriter();
+		new CoNLL2RDF(BenchmarkData.BASE_URI, columns.clone()).conll2ttl(new StringReader(conll), out);
+		return out.toString();
+	}
+
+	@Benchmark
+	public Model conll2model() throws IOException {
+		return new CoNLL2RDF(BenchmarkData.BASE_URI, columns.clone()).conll2model(new StringReader(conll));
+	}
+}
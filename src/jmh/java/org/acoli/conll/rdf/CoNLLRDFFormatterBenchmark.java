@@ -0,0 +1,58 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-sentence work of CoNLLRDFFormatter: canonical CoNLL-RDF (-rdf) and CoNLL export (-conll).
+ * One operation formats all <code>sentences</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CoNLLRDFFormatterBenchmark {
+	@Param({ "100" })
+	int sentences;
+
+	private List<String> buffers;
+	private String select;
+
+	@Setup
+	public void setup() throws IOException {
+		buffers = BenchmarkData.conllRdfSentences(sentences);
+		select = CoNLLRDFFormatter.columnsAsSelect(BenchmarkData.UD_COLUMNS);
+	}
+
+	@Benchmark
+	public void reorderTTLBuffer(Blackhole bh) {
+		for (String buffer : buffers)
+			bh.consume(CoNLLRDFFormatter.reorderTTLBuffer(buffer, BenchmarkData.UD_COLUMNS));
+	}
+
+	@Benchmark
+	public void printSparql(Blackhole bh) throws IOException {
+		for (String buffer : buffers) {
+			StringWriter out = new StringWriter();
+			CoNLLRDFFormatter.printSparql(buffer, select, out);
+			bh.consume(out.toString());
+		}
+	}
+}
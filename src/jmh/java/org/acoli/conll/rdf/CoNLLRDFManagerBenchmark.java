@@ -0,0 +1,63 @@
+package org.acoli.conll.rdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonParser.Feature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The examples/analyze-ud.json pipeline end-to-end, on the complete UD English dev set.
+ * The output is written to a temporary file instead of System.out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 20)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class CoNLLRDFManagerBenchmark {
+	private File config;
+	private File output;
+
+	@Setup
+	public void setup() throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.configure(Feature.ALLOW_COMMENTS, true);
+		ObjectNode conf = (ObjectNode) objectMapper.readTree(new File("examples/analyze-ud.json"));
+		output = File.createTempFile("analyze-ud", ".tsv");
+		conf.put("output", output.getPath());
+		config = File.createTempFile("analyze-ud", ".json");
+		objectMapper.writeValue(config, conf);
+	}
+
+	@TearDown
+	public void tearDown() {
+		config.delete();
+		output.delete();
+	}
+
+	@Benchmark
+	public void analyzeUD() throws IOException, ParseException, InterruptedException {
+		CoNLLRDFManager manager = new CoNLLRDFManager();
+		manager.readConfig(config.getPath());
+		manager.buildComponentStack();
+		manager.start();
+		manager.join();
+	}
+}
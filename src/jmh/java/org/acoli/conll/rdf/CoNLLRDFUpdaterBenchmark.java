@@ -0,0 +1,60 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CoNLLRDFUpdater applying the analyze-ud updates to CoNLL-RDF, on 1 and on N threads.
+ * One operation processes all <code>sentences</code>, from parsing the input to writing the output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CoNLLRDFUpdaterBenchmark {
+	@Param({ "200" })
+	int sentences;
+
+	@Param({ "1", "4" })
+	int threads;
+
+	private String conllRdf;
+	private final List<Triple<String, String, String>> updates = new ArrayList<Triple<String, String, String>>();
+
+	@Setup
+	public void setup() throws IOException {
+		conllRdf = BenchmarkData.conllRdf(sentences);
+		for (String update : BenchmarkData.ANALYZE_UPDATES)
+			updates.add(new ImmutableTriple<String, String, String>(update, update, "1"));
+	}
+
+	@Benchmark
+	public void update() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", threads);
+		updater.parseUpdates(updates);
+		updater.setInputStream(new BufferedReader(new StringReader(conllRdf)));
+		updater.setOutputStream(BenchmarkData.nullStream());
+		updater.processSentenceStream();
+	}
+}
@@ -0,0 +1,23 @@
+package org.acoli.conll.rdf;
+
+/**
+ * A bounded queue between two components of a {@link CoNLLRDFManager} pipeline, see {@link SentencePipe} and
+ * {@link TextPipe}. The sending component blocks while the pipe is full, the receiving one while it is empty.
+ */
+interface BoundedPipe {
+	/**
+	 * @return the number of sentences waiting in the pipe
+	 */
+	int size();
+
+	/**
+	 * @return the maximum number of sentences waiting in the pipe
+	 */
+	int capacity();
+
+	/**
+	 * Break the pipe because one of its components failed: both sides, also if they are waiting, get an IOException
+	 * instead of waiting forever for a component that is gone.
+	 */
+	void abort();
+}
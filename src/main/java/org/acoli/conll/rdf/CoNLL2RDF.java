@@ -20,8 +20,14 @@ import java.nio.charset.*;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.lang.reflect.*;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;	// Jena 3.x
 //import com.hp.hpl.jena.rdf.model.*;		// Jena 2.x
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.vocabulary.RDF;
 import org.apache.log4j.Logger;
 
 
@@ -41,10 +47,12 @@ public class CoNLL2RDF extends Format2RDF{
 	
 	public CoNLL2RDF(String baseURI, String[] fields, Writer out) throws IOException {
 		super(baseURI, fields, out);
+		initTriples();
 	}
 	
 	public CoNLL2RDF(String baseURI, String[] fields) throws IOException {
 		super(baseURI, fields);
+		initTriples();
 	}
 
 	
@@ -55,6 +63,233 @@ public class CoNLL2RDF extends Format2RDF{
 		Format2RDF.main("CoNLL",argv);
 	}
 	
+	/** Turtle local names we can expand without the parser: no escapes, no colons, not ending in a dot */
+	private final static Pattern localName = Pattern.compile("^[A-Za-z0-9_]([A-Za-z0-9_.\\-]*[A-Za-z0-9_\\-])?$");
+
+	/** prefixes of the conll2model() output in declaration order, as resolved by the Turtle parser;
+	 *  null if the base URI cannot be parsed, then conll2model() always takes the Turtle route */
+	private Map<String,String> prefixes = null;
+	private String baseNS;
+	private Node nifSentence, nifWord, nextSentence, nextWord, conllHEAD;
+	/** conll: property per column, null if the column label is not a plain local name */
+	private Node[] colProperties;
+	/** conll: properties for SRL labels */
+	private final Map<String,Node> argProperties = new HashMap<String,Node>();
+	/** the Turtle route rewrites placeholders in the entire sentence, so we leave it to cells or labels containing one */
+	private boolean placeholderLabels = false;
+
+	/** resolve the prefixes written by writePrefixes() exactly as conll2model() does and cache the nodes we need */
+	private void initTriples() {
+		if(col2field.isEmpty())
+			return;
+		final Map<String,String> parsedPrefixes = new LinkedHashMap<String,String>();
+		try {
+			StringWriter decl = new StringWriter();
+			writePrefixes(decl);
+			ParsedSentence.parseTurtle(decl.toString(), baseURI, new StreamRDFBase() {
+				@Override
+				public void prefix(String prefix, String iri) {
+					parsedPrefixes.put(prefix, iri);
+				}
+			});
+		} catch (Exception e) {
+			LOG.debug("base URI "+baseURI+" requires the Turtle route: "+e.getMessage());
+			return;
+		}
+		baseNS = parsedPrefixes.get("");
+		String nif = parsedPrefixes.get("nif");
+		String conll = parsedPrefixes.get("conll");
+		nifSentence = NodeFactory.createURI(nif+"Sentence");
+		nifWord = NodeFactory.createURI(nif+"Word");
+		nextSentence = NodeFactory.createURI(nif+"nextSentence");
+		nextWord = NodeFactory.createURI(nif+"nextWord");
+		conllHEAD = NodeFactory.createURI(conll+"HEAD");
+		colProperties = new Node[col2field.size()];
+		for(int i = 0; i<col2field.size(); i++) {
+			if(localName.matcher(col2field.get(i)).matches())
+				colProperties[i] = NodeFactory.createURI(conll+col2field.get(i));
+			if(col2field.get(i).contains("_TMP_"))
+				placeholderLabels = true;
+		}
+		prefixes = parsedPrefixes;
+	}
+
+	/**
+	 * Same result as conll2ttl(Reader, Writer) parsed by Format2RDF.conll2model(), but the triples are created directly from the
+	 * CoNLL cells, without writing and parsing Turtle.<br>
+	 * For input we cannot reproduce exactly (cells that aren't plain Turtle local names in URIs, unterminated sentences, etc.),
+	 * we fall back to the Turtle route, so the result is always the same.
+	 */
+	@Override
+	public Model conll2model(Reader in) throws IOException {
+		if(prefixes==null)
+			return super.conll2model(in);
+		List<String> lines = new ArrayList<String>();
+		BufferedReader bin = new BufferedReader(in);
+		for(String line = bin.readLine(); line!=null; line=bin.readLine())
+			lines.add(line);
+		int sent0 = sent, tok0 = tok, pos0 = pos;
+		Model model = ModelFactory.createDefaultModel();
+		model.setNsPrefixes(prefixes);
+		if(conll2graph(lines, model.getGraph()))
+			return model;
+		sent = sent0; tok = tok0; pos = pos0;
+		StringBuilder text = new StringBuilder();
+		for(String line : lines)
+			text.append(line).append('\n');
+		return super.conll2model(new StringReader(text.toString()));
+	}
+
+	/** the nif:Sentence node conll2model() creates for sentence <i>sent</i>, or null if the base URI requires the Turtle route */
+	Node sentenceNode(int sent) {
+		if(prefixes==null)
+			return null;
+		return NodeFactory.createURI(baseNS+"s"+sent+"_0");
+	}
+
+	/** true if <i>label</i> can be used as a Turtle local name, as for the conll: properties of the columns */
+	static boolean isLocalName(String label) {
+		return localName.matcher(label).matches();
+	}
+
+	/** the URI :s<i>sent</i>_<i>id</i>, or null if <i>id</i> cannot be used in a Turtle local name */
+	private Node word(String id) {
+		String local = "s"+sent+"_"+id;
+		if(!localName.matcher(local).matches())
+			return null;
+		return NodeFactory.createURI(baseNS+local);
+	}
+
+	/**
+	 * Mirrors conll2ttl(Reader, Writer), adding the triples in the order the Turtle parser would.
+	 * @return false if the triples may differ from those of the Turtle route, nothing is written to the graph, then
+	 */
+	private boolean conll2graph(List<String> lines, Graph graph) {
+		List<Triple> triples = new ArrayList<Triple>();
+		boolean inSentence = false;
+		Node lastWord = null;
+		ArrayList<Node> predicates = new ArrayList<Node>();
+		// same strings as in conll2ttl(), so that the parser would see them in the same order
+		TreeSet<String> argTriples = new TreeSet<String>();
+		Map<String,Node> args = new HashMap<String,Node>();
+
+		for(String line : lines) {
+			line=normalizeLine(line);
+			if(line==null)
+				continue;
+			Node root = word("0");
+			if(line.trim().equals("") && inSentence) {
+				for(String arg : argTriples) {
+					String[] spo = arg.split(" ");
+					Node pred = resolve(spo[0], predicates);
+					if(pred==null)
+						return false;
+					triples.add(new Triple(pred, argProperties.get(spo[1].substring("conll:".length())), args.get(arg)));
+				}
+				argTriples.clear();
+				args.clear();
+				predicates.clear();
+				inSentence = false;
+				tok=0;
+				sent++;
+			} else {
+				line=comment.matcher(line).replaceFirst("").trim();
+				if(!line.equals("")) {
+					if(!inSentence) {
+						if(sent>1)
+							triples.add(new Triple(NodeFactory.createURI(baseNS+"s"+(sent-1)+"_0"), nextSentence, root));
+						triples.add(new Triple(root, RDF.Nodes.type, nifSentence));
+						inSentence = true;
+					}
+					tok++;
+					String id_string = ""+tok;
+					String[] field = line.split("\t");
+					try {
+						if(idCol>=0) id_string = field[idCol];
+					} catch (ArrayIndexOutOfBoundsException e) {
+						throw new ArrayIndexOutOfBoundsException("if defined as label, the ID column is obligatory");
+					}
+					Node word = word(id_string);
+					if(word==null)
+						return false;
+					if(tok>1)
+						triples.add(new Triple(lastWord, nextWord, word));
+					triples.add(new Triple(word, RDF.Nodes.type, nifWord));
+					for(int i = 0; i<field.length; i++) {
+						field[i]=field[i].trim();
+						if(!empty.matcher(field[i]).matches()) {
+							if(placeholderLabels || field[i].contains("_TMP_"))
+								return false;
+							if(hasRole(i, WORD))
+								pos=pos+field[i].length();
+							if(hasRole(i, HEAD)) {
+								Node head = word(field[i]);
+								if(head==null || colProperties[i]==null)
+									return false;
+								triples.add(new Triple(word, colProperties[i], head));
+							} else if (i<col2field.size()-1 || (i==col2field.size()-1 && !hasArgs)) {
+								if(colProperties[i]==null || !plainLiteral(field[i]))
+									return false;
+								triples.add(new Triple(word, colProperties[i], NodeFactory.createLiteral(
+										field[i].replace("&","&amp;").replace("\"","&quot;"))));
+							} else if (hasArgs) {
+								if(colProperties[col2field.size()-1]==null || !localName.matcher(field[i]).matches())
+									return false;
+								if(!argProperties.containsKey(field[i]))
+									argProperties.put(field[i], NodeFactory.createURI(prefixes.get("conll")+field[i]));
+								String arg = "_TMP_"+argsStem+"_"+(i+1-col2field.size())+
+										" conll:"+field[i]+
+										" :s"+sent+"_"+id_string;
+								argTriples.add(arg);
+								args.put(arg, word);
+							}
+							if(hasRole(i, PREDICATE))
+								predicates.add(word);
+							pos++;
+						}
+					}
+					if(field2col.get("HEAD")==null)
+						triples.add(new Triple(word, conllHEAD, root));
+					lastWord = word;
+				}
+			}
+		}
+		// conll2ttl() handles an unterminated sentence differently, leave that to it
+		if(inSentence)
+			return false;
+		for(Triple t : triples)
+			graph.add(t);
+		return true;
+	}
+
+	/**
+	 * Resolve an SRL placeholder the way conll2ttl() does: by replacing _TMP_<i>X</i>_<i>i</i> with the URI of the <i>i</i>th
+	 * predicate in the sentence text, for i = 0, 1, ... in turn. Like the textual replacement, _TMP_<i>X</i>_1 also matches
+	 * the beginning of _TMP_<i>X</i>_10.
+	 * @return the predicate, or null if the placeholder remains unresolved (which the Turtle parser rejects) or doesn't
+	 * 			resolve to a URI we can create directly
+	 */
+	private Node resolve(String placeholder, List<Node> predicates) {
+		String k = placeholder.substring(placeholder.lastIndexOf('_')+1);
+		for(int i = 0; i<predicates.size(); i++) {
+			if(k.startsWith(""+i)) {
+				if(k.equals(""+i))
+					return predicates.get(i);
+				String local = predicates.get(i).getURI().substring(baseNS.length())+k.substring((""+i).length());
+				return localName.matcher(local).matches() ? NodeFactory.createURI(baseNS+local) : null;
+			}
+		}
+		return null;
+	}
+
+	/** true if the cell can be written as a Turtle string between double quotes, without escapes other than for backslashes */
+	private static boolean plainLiteral(String cell) {
+		for(int i = 0; i<cell.length(); i++)
+			if(cell.charAt(i)<' ')
+				return false;
+		return true;
+	}
+
 	/**
 	 * See conll2ttl(Reader), but note that we write *only* to the specified writer.
 	 * If this is not the pre-defined writer out, we define the prefixes.<br>
@@ -72,12 +307,15 @@ public class CoNLL2RDF extends Format2RDF{
 		TreeSet<String> argTriples = new TreeSet<String>();
 		Set<String> argsProperties = new TreeSet<String>();
 		Set<String> headSubProperties = new TreeSet<String>();
+		// X-ARG, the super-property of the SRL labels
+		String argsProperty = col2field.get(col2field.size()-1).replaceFirst("([\\-_]*[Aa][rR][gG])[sS]$","$1");
 		
 		for(String line = ""; line!=null; line=bin.readLine()) {
 			//if(line.contains("#"))
 				//out.write(line.replaceFirst("^[^#]*","")); // uncomment to keep commentaries
-			line=line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)","").trim(); 		// in this way, we can also read sketch engine data and split at s and p elements
-			if(!(line.trim().matches("^<[^>]*>$"))) {							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
+			String normalized=normalizeLine(line); 		// in this way, we can also read sketch engine data and split at s and p elements
+			if(normalized!=null) {							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
+				line=normalized;
 				root = ":s"+sent+"_"+0;
 				if(line.trim().equals("") && !sentence.equals("")) {
 					for(String arg : argTriples)
@@ -87,9 +325,9 @@ public class CoNLL2RDF extends Format2RDF{
 							"\n";
 					// sentence=sentence+".\n";
 					argTriples.clear();
-					if(col2field.get(col2field.size()-1).toLowerCase().matches(".*args")) {
+					if(hasArgs) {
 						for(int i = 0; i<predicates.size(); i++) {
-							sentence=sentence.replaceAll("_TMP_"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","_"+i),predicates.get(i));
+							sentence=sentence.replaceAll("_TMP_"+argsStem+"_"+i,predicates.get(i));
 						}
 					}
 					out.write(sentence+"\n");
@@ -101,7 +339,7 @@ public class CoNLL2RDF extends Format2RDF{
 				} else {
 					// if(line.contains("#")) out.write(line.replaceFirst("^[^#]*#", "#")+"\n");
 					// uncomment to keep comments
-					line=line.replaceFirst("#.*","").trim();
+					line=comment.matcher(line).replaceFirst("").trim();
 					if(!line.equals("")) {
 						if(sentence.equals("")) {
 							if(sent>1) { 
@@ -114,7 +352,7 @@ public class CoNLL2RDF extends Format2RDF{
 						String id_string = ""+tok;
 						String[] field = line.split("\t");
 						try {
-							if(field2col.get("ID")!=null) id_string = field[field2col.get("ID")];
+							if(idCol>=0) id_string = field[idCol];
 						} catch (ArrayIndexOutOfBoundsException e) {
 							throw new ArrayIndexOutOfBoundsException("if defined as label, the ID column is obligatory");
 						} catch (NumberFormatException e) {
@@ -130,28 +368,28 @@ public class CoNLL2RDF extends Format2RDF{
 						for(int i = 0; i<field.length; i++) {
 							field[i]=field[i].trim();
 							if(!empty.matcher(field[i]).matches()) {
-								if(i<col2field.size() && col2field.get(i).toLowerCase().equals("word"))
+								if(hasRole(i, WORD))
 									pos=pos+field[i].trim().length();
-								if(i<col2field.size() && col2field.get(i).toLowerCase().matches("^head[0-9]*$")) {
+								if(hasRole(i, HEAD)) {
 									sentence=sentence+"; conll:"+col2field.get(i)+" :s"+sent+"_"+field[i].trim();
 									// we do that with a SPARQL query now
 									//if(col2field.get(i).equals("HEAD")) {
 									//	sentence=sentence+"; conll:"+field[field2col.get("EDGE")].trim()+" :s"+sent+"_"+field[i].trim(); // easy querying
 									//	headSubProperties.add("conll:"+field[field2col.get("EDGE")].trim()+" rdfs:subPropertyOf conll:HEAD.");
 									//}
-								} else if (i<col2field.size()-1 || (i==col2field.size()-1 && !col2field.get(col2field.size()-1).toLowerCase().matches(".*args$")))
-									sentence=sentence+"; conll:"+col2field.get(i)+" \""+field[i].trim().replaceAll("&","&amp;").replaceAll("\"","&quot;").replaceAll("\\\\","\\\\\\\\")+"\"";
-								else if (col2field.get(col2field.size()-1).toLowerCase().matches(".*args$")) {
+								} else if (i<col2field.size()-1 || (i==col2field.size()-1 && !hasArgs))
+									sentence=sentence+"; conll:"+col2field.get(i)+" \""+field[i].trim().replace("&","&amp;").replace("\"","&quot;").replace("\\","\\\\")+"\"";
+								else if (hasArgs) {
 									// works fine, but yields wrong direction // sentence=sentence+"; conll:"+field[i].trim()+" _TMP_"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","_"+(i+1-col2field.size()));
 									argTriples.add(
-										"_TMP_"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","_"+(i+1-col2field.size()))+
+										"_TMP_"+argsStem+"_"+(i+1-col2field.size())+
 										" conll:"+field[i].trim()+
 										" "+URI);
 									argsProperties.add("conll:"+field[i].trim()+" "+
 										"rdfs:subPropertyOf "+
-										"conll:"+col2field.get(col2field.size()-1).replaceFirst("([\\-_]*[Aa][rR][gG])[sS]$","$1")+".");
+										"conll:"+argsProperty+".");
 								}
-								if(i<col2field.size() && col2field.get(i).equals(col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","")))
+								if(hasRole(i, PREDICATE))
 									predicates.add(URI);
 								pos++;
 							}
@@ -167,9 +405,9 @@ public class CoNLL2RDF extends Format2RDF{
 					sentence=sentence+".\n"+arg;
 				sentence=sentence+".\n";
 				argTriples.clear();
-				if(col2field.get(col2field.size()-1).toLowerCase().matches(".*args$"))
+				if(hasArgs)
 					for(int i = 0; i<predicates.size(); i++)
-						sentence=sentence.replaceAll("\\?"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","+"+i),predicates.get(i));
+						sentence=sentence.replaceAll("\\?"+argsStem+"+"+i,predicates.get(i));
 				out.write(sentence); //+"\n");
 			//out.write("\n");
 			for(String p : headSubProperties) 
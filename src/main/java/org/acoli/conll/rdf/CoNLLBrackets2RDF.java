@@ -78,8 +78,9 @@ abstract class CoNLLBrackets2RDF extends Format2RDF {
 		Hashtable<Integer,StringBuffer> col2trees = new Hashtable<Integer,StringBuffer>();
 		
 		for(String line = ""; line!=null; line=bin.readLine()) {
-			line=line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)","").trim(); 		// in this way, we can also read sketch engine data and split at s and p elements
-			if(!(line.trim().matches("^<[^>]*>$"))) {							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
+			String normalized=normalizeLine(line); 		// in this way, we can also read sketch engine data and split at s and p elements
+			if(normalized!=null) {							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
+				line=normalized;
 				if(!line.replaceFirst("^#.*","").trim().equals("")) tok++;
 				
 				String fields[] = line.split("\t");
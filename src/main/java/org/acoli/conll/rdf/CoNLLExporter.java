@@ -0,0 +1,248 @@
+package org.acoli.conll.rdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+
+/**
+ * Exports the words of a sentence graph as CoNLL rows, with the same result as running
+ * {@link CoNLLRDFFormatter#columnsAsSelect(List)} on it, but without SPARQL.
+ *
+ * The query numbers sentences and words by counting their predecessors over <code>nif:nextSentence*</code> and
+ * <code>nif:nextWord*</code>, and finds the sentence of a word over <code>conll:HEAD+</code>, which takes time
+ * quadratic in the length of the sentence. Here, the <code>nif:nextWord</code> chain is walked once, and the cells
+ * are looked up with {@link Graph#find(Node, Node, Node)}.
+ *
+ * Graphs for which the query result is not well-defined by this walk are left to the query:
+ * {@link #export(Graph)} returns null if a word has more than one value for a column or more than one
+ * <code>conll:HEAD</code>, if the <code>nif:nextWord</code> links branch or form a cycle, or if two words end up
+ * at the same position. So are column names that are not plain SPARQL variable names or that clash with the
+ * variables of the query.
+ */
+final class CoNLLExporter {
+	private static final String NIF = "http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#";
+	private static final String CONLL = "http://ufal.mff.cuni.cz/conll2009-st/task-description.html#";
+	private static final Node NIF_SENTENCE = NodeFactory.createURI(NIF+"Sentence");
+	private static final Node NIF_WORD = NodeFactory.createURI(NIF+"Word");
+	private static final Node NEXT_SENTENCE = NodeFactory.createURI(NIF+"nextSentence");
+	private static final Node NEXT_WORD = NodeFactory.createURI(NIF+"nextWord");
+	private static final Node CONLL_HEAD = NodeFactory.createURI(CONLL+"HEAD");
+	/** the variables of the column query, other than those derived from column names */
+	private static final Set<String> QUERY_VARIABLES = new HashSet<String>(
+			Arrays.asList("word", "sid", "wid", "pre", "preS", "s", "headurl"));
+	private static final Pattern HEAD_ID = Pattern.compile("^.*s[0-9]+_([0-9]+)$");
+
+	private final List<String> cols;
+	private final Node[] properties;
+	/** the column names can be used as they are */
+	private final boolean plain;
+	private String select = null;
+
+	/**
+	 * @param cols
+	 * 			the column names, at least one
+	 */
+	CoNLLExporter(List<String> cols) {
+		this.cols = Collections.unmodifiableList(new ArrayList<String>(cols));
+		properties = new Node[cols.size()];
+		for (int i = 0; i < cols.size(); i++)
+			properties[i] = NodeFactory.createURI(CONLL+cols.get(i));
+		plain = isPlain(this.cols);
+	}
+
+	List<String> getCols() {
+		return cols;
+	}
+
+	/**
+	 * @return the SPARQL SELECT equivalent to this exporter, built on first call
+	 */
+	String getSelect() {
+		if (select == null)
+			select = CoNLLRDFFormatter.columnsAsSelect(cols);
+		return select;
+	}
+
+	/**
+	 * Column names become variables <code>?COL</code>, <code>?COLs</code>, <code>?COLa</code> and
+	 * <code>?COL_raw</code> of the query. If these are not distinct, or not valid, the query decides.
+	 */
+	private static boolean isPlain(List<String> cols) {
+		Set<String> variables = new HashSet<String>(QUERY_VARIABLES);
+		for (String col : cols)
+			if (!col.matches("[A-Za-z0-9_]+"))
+				return false;
+		for (String col : cols)
+			for (String variable : new String[] { col, col+"s", col+"a", col+"_raw" })
+				if (!variables.add(variable))
+					return false;
+		return true;
+	}
+
+	/**
+	 * @return one row per word that is connected to a <code>nif:Sentence</code> over <code>conll:HEAD</code>,
+	 * 			in the order of sentence and word; one cell per column, null where the query leaves it unbound.
+	 * 			null if the graph is left to the query, see above.
+	 */
+	List<String[]> export(Graph graph) {
+		if (!plain)
+			return null;
+		final Map<Node, Set<Node>> sentencePredecessors = new HashMap<Node, Set<Node>>();
+		final Map<Node, Integer> sentenceIds = new HashMap<Node, Integer>();
+		final Map<Node, Integer> wordIds = new HashMap<Node, Integer>();
+		final List<Node> words = new ArrayList<Node>();
+		for (Triple t : graph.find(Node.ANY, RDF.Nodes.type, NIF_WORD).toList()) {
+			Node word = t.getSubject();
+			Integer sid = sentenceId(graph, word, sentencePredecessors);
+			if (sid == null)
+				return null;
+			if (sid == 0)
+				// not connected to a sentence, no result
+				continue;
+			if (wordId(graph, word, wordIds) == null)
+				return null;
+			sentenceIds.put(word, sid);
+			words.add(word);
+		}
+		Collections.sort(words, new Comparator<Node>() {
+			@Override
+			public int compare(Node a, Node b) {
+				int result = sentenceIds.get(a).compareTo(sentenceIds.get(b));
+				return (result != 0) ? result : wordIds.get(a).compareTo(wordIds.get(b));
+			}
+		});
+		List<String[]> rows = new ArrayList<String[]>(words.size());
+		for (int w = 0; w < words.size(); w++) {
+			Node word = words.get(w);
+			if (w > 0 && sentenceIds.get(word).equals(sentenceIds.get(words.get(w-1)))
+					&& wordIds.get(word).equals(wordIds.get(words.get(w-1))))
+				// the order of the query is undefined
+				return null;
+			String[] row = new String[cols.size()];
+			for (int i = 0; i < cols.size(); i++) {
+				List<Triple> values = graph.find(word, properties[i], Node.ANY).toList();
+				if (values.size() > 1)
+					return null;
+				String value = values.isEmpty() ? null : str(values.get(0).getObject());
+				if (value != null && properties[i].equals(CONLL_HEAD))
+					value = HEAD_ID.matcher(value).replaceAll("$1");
+				if (i == cols.size()-1) {
+					// the last column is always bound, and ends the sentence with a line break
+					if (value == null)
+						value = "_";
+					if (!graph.contains(word, NEXT_WORD, Node.ANY))
+						value = value+"\n";
+				}
+				// as the query result prints it, e.g., with escaped quotes
+				row[i] = (value == null) ? null : ResourceFactory.createPlainLiteral(value).toString();
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	/**
+	 * SPARQL <code>str()</code>, null for blank nodes
+	 */
+	private static String str(Node node) {
+		if (node.isURI())
+			return node.getURI();
+		if (node.isLiteral())
+			return node.getLiteralLexicalForm();
+		return null;
+	}
+
+	/**
+	 * The number of <code>?preS</code> with <code>?preS nif:nextSentence* ?s</code>, for all sentences
+	 * <code>?s</code> with <code>?word conll:HEAD+ ?s</code>, i.e., the sentence ID of the query.
+	 * @param cache
+	 * 			the predecessors of each sentence, filled as they are found
+	 * @return 0 if the word is not connected to a sentence, null if the word has more than one HEAD on the way
+	 */
+	private static Integer sentenceId(Graph graph, Node word, Map<Node, Set<Node>> cache) {
+		Set<Node> visited = new HashSet<Node>();
+		Set<Node> predecessors = null;
+		Node node = word;
+		while (true) {
+			List<Triple> heads = graph.find(node, CONLL_HEAD, Node.ANY).toList();
+			if (heads.size() > 1)
+				return null;
+			if (heads.isEmpty())
+				break;
+			node = heads.get(0).getObject();
+			if (!visited.add(node))
+				break;
+			if (graph.contains(node, RDF.Nodes.type, NIF_SENTENCE)) {
+				if (!cache.containsKey(node))
+					cache.put(node, predecessors(graph, node, NEXT_SENTENCE));
+				if (predecessors == null)
+					predecessors = new HashSet<Node>();
+				predecessors.addAll(cache.get(node));
+			}
+		}
+		if (predecessors == null)
+			return 0;
+		return predecessors.size();
+	}
+
+	/**
+	 * The number of <code>?pre</code> with <code>?pre nif:nextWord* ?word</code>, i.e., the word ID of the query,
+	 * counted back along the <code>nif:nextWord</code> chain until a word with a known ID.
+	 * @param cache
+	 * 			the IDs of the words, filled as they are found
+	 * @return null if the chain branches or forms a cycle
+	 */
+	private static Integer wordId(Graph graph, Node word, Map<Node, Integer> cache) {
+		List<Node> chain = new ArrayList<Node>();
+		Set<Node> visited = new HashSet<Node>();
+		Node node = word;
+		int id = 0;
+		while (node != null) {
+			if (cache.containsKey(node)) {
+				id = cache.get(node);
+				break;
+			}
+			if (!visited.add(node))
+				return null;
+			chain.add(node);
+			List<Triple> pre = graph.find(Node.ANY, NEXT_WORD, node).toList();
+			if (pre.size() > 1)
+				return null;
+			node = pre.isEmpty() ? null : pre.get(0).getSubject();
+		}
+		for (int i = chain.size()-1; i >= 0; i--)
+			cache.put(chain.get(i), ++id);
+		return cache.get(word);
+	}
+
+	/**
+	 * @return <code>node</code> and all nodes connected to it by a chain of <code>property</code>
+	 */
+	private static Set<Node> predecessors(Graph graph, Node node, Node property) {
+		Set<Node> result = new HashSet<Node>();
+		List<Node> agenda = new ArrayList<Node>();
+		agenda.add(node);
+		result.add(node);
+		while (!agenda.isEmpty()) {
+			Node next = agenda.remove(agenda.size()-1);
+			for (Triple t : graph.find(Node.ANY, property, next).toList())
+				if (result.add(t.getSubject()))
+					agenda.add(t.getSubject());
+		}
+		return result;
+	}
+}
@@ -271,6 +271,25 @@ class CoNLLRDFCommandLine {
 		return new ImmutablePair<>(updateRaw, freq);
 	}
 
+	/**
+	 * @param values
+	 * 			the values of a <code>-shard I N</code> option
+	 * @return I and N
+	 * @throws ParseException if they are not numbers with 1 &lt;= I &lt;= N
+	 */
+	public static Pair<Integer, Integer> parseShard(String[] values) throws ParseException {
+		try {
+			int i = Integer.parseInt(values[0]);
+			int n = Integer.parseInt(values[1]);
+			if (i >= 1 && i <= n)
+				return new ImmutablePair<>(i, n);
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			// reported below
+		}
+		throw new ParseException("-shard takes the number I of a shard and the number N of shards, 1 <= I <= N, but got "
+				+ Arrays.asList(values));
+	}
+
 	public static File parseDir(String arg) throws IOException {
 		// arg = arg.toLowerCase(); // FIXME why?
 		File dir = new File(arg);
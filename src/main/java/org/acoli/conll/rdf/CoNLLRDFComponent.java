@@ -4,18 +4,19 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
-import java.util.Arrays;
-import java.util.List;
 
 public abstract class CoNLLRDFComponent implements Runnable {
-	static final List<Integer> CHECKINTERVAL = Arrays.asList(3, 10, 25, 50, 100, 200, 500);
 	static final String DEFAULTUPDATENAME = "DIRECTUPDATE";
 	// maximal update iterations allowed until the update loop is canceled and an error msg is thrown
 	// (to prevent faulty update scripts running in an endless loop)
 	static final int MAXITERATE = 999;
 
-	private BufferedReader inputStream = new BufferedReader(new InputStreamReader(System.in));
+	// gzip-compressed input is recognized and inflated on the fly
+	private BufferedReader inputStream = new BufferedReader(new InputStreamReader(CompressedStreams.decompress(System.in)));
 	private PrintStream outputStream = System.out;
+	// in-process transport between components of a CoNLLRDFManager pipeline, replaces the streams if set
+	private SentencePipe sentenceInput = null;
+	private SentencePipe sentenceOutput = null;
 
 	protected abstract void processSentenceStream() throws IOException;
 
@@ -31,6 +32,38 @@ public abstract class CoNLLRDFComponent implements Runnable {
 	public final void setOutputStream(PrintStream outputStream) {
 		this.outputStream = outputStream;
 	}
+	final SentencePipe getSentenceInput() {
+		return sentenceInput;
+	}
+	final void setSentenceInput(SentencePipe sentenceInput) {
+		this.sentenceInput = sentenceInput;
+	}
+	final SentencePipe getSentenceOutput() {
+		return sentenceOutput;
+	}
+	final void setSentenceOutput(SentencePipe sentenceOutput) {
+		this.sentenceOutput = sentenceOutput;
+	}
+
+	/**
+	 * @return true if this component can read its input from a {@link SentencePipe} instead of the input stream
+	 */
+	boolean acceptsSentenceInput() {
+		return false;
+	}
+	/**
+	 * @return true if this component can write its output to a {@link SentencePipe} instead of the output stream
+	 */
+	boolean producesSentenceOutput() {
+		return false;
+	}
+	/**
+	 * @return true if this component processes each sentence independently of all others, so that a
+	 * 			{@link ShardedPipeline} may run copies of it on consecutive parts of the input
+	 */
+	boolean supportsSharding() {
+		return false;
+	}
 
 	@Override
 	public final void run() {
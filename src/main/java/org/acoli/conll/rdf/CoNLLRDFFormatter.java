@@ -17,8 +17,13 @@ package org.acoli.conll.rdf;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import org.apache.jena.rdf.model.*;		// Jena 2.x
+import org.apache.jena.riot.RiotException;
 import org.apache.log4j.Logger;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.cli.ParseException;
 import org.apache.jena.query.*;
 
@@ -58,6 +63,9 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		private List<String> cols = new ArrayList<String>();
 		String select = "";
 		private PrintStream outputStream;
+		private CoNLLExporter exporter = null;
+		private Query query = null;
+		private String querySelect = null;
 		
 		public Mode getMode() {
 			return mode;
@@ -90,6 +98,22 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		public void setOutputStream(PrintStream outputStream) {
 			this.outputStream = outputStream;
 		}
+
+		/** the exporter for the current cols, renewed whenever these change */
+		CoNLLExporter getExporter() {
+			if (exporter == null || !exporter.getCols().equals(cols))
+				exporter = new CoNLLExporter(cols);
+			return exporter;
+		}
+
+		/** the current select, parsed on first use */
+		Query getQuery() {
+			if (query == null || !select.equals(querySelect)) {
+				query = QueryFactory.create(select);
+				querySelect = select;
+			}
+			return query;
+		}
 	}
 	
 	public static enum Mode {
@@ -97,6 +121,57 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 	}
 
 	private List<Module> modules = new ArrayList<Module>();
+
+	private boolean parallel = false;
+	private boolean typedComments = false;
+	private final List<ModuleThread> moduleThreads = new ArrayList<ModuleThread>();
+	private volatile Throwable moduleError = null;
+	/** sentences queued per ModuleThread before the reading thread waits */
+	private static final int MODULE_QUEUE_CAPACITY = 16;
+	private static final Pair<ParsedSentence, Boolean> SHUTDOWN = new ImmutablePair<ParsedSentence, Boolean>(null, null);
+
+	/**
+	 * Formats every sentence for all modules that write to the same output stream, in module order.
+	 * Modules writing to different streams run in different ModuleThreads, see {@link #setParallel(boolean)}.
+	 */
+	private class ModuleThread extends Thread {
+		private final PrintStream target;
+		private final List<Module> threadModules = new ArrayList<Module>();
+		private final BlockingQueue<Pair<ParsedSentence, Boolean>> queue =
+				new ArrayBlockingQueue<Pair<ParsedSentence, Boolean>>(MODULE_QUEUE_CAPACITY);
+
+		ModuleThread(int id, PrintStream target) {
+			super("ModuleThread-"+id);
+			this.target = target;
+		}
+
+		public void run() {
+			while (true) {
+				Pair<ParsedSentence, Boolean> task;
+				try {
+					task = queue.take();
+				} catch (InterruptedException e) {
+					LOG.warn("Interrupted while waiting for work: "+getName());
+					return;
+				}
+				if (task == SHUTDOWN)
+					return;
+				if (moduleError != null)
+					// the reading thread stops at the next sentence, keep the queue moving until then
+					continue;
+				try {
+					for (Module m:threadModules)
+						formatSentence(m, task.getLeft(), task.getRight());
+				} catch (Exception e) {
+					// rethrown by the reading thread, as if it had formatted the sentence itself
+					failModule(e);
+				} catch (Error e) {
+					failModule(e);
+					throw e;
+				}
+			}
+		}
+	}
 	
 	public List<Module> getModules() {
 		return modules;
@@ -105,6 +180,42 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		return modules.add(module);
 	}
 
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * @param parallel if true, modules writing to different output streams format each sentence in parallel threads.
+	 * 			Modules sharing an output stream still write in module order.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public boolean isTypedComments() {
+		return typedComments;
+	}
+
+	/**
+	 * @param typedComments if true, the CoNLL and query modules also write the conll: literals of a sentence as
+	 * 			<code># key = value</code> comments, as added by {@link CoNLLStreamExtractor#setTypedComments(boolean)}
+	 */
+	public void setTypedComments(boolean typedComments) {
+		this.typedComments = typedComments;
+	}
+
+	@Override
+	boolean supportsSharding() {
+		// all modules write to the same stream, and the CoNLL columns are not taken from the first sentence
+		for (Module m:modules) {
+			if (m.getMode()==Mode.DEBUG || m.getOutputStream()!=modules.get(0).getOutputStream())
+				return false;
+			if (m.getMode()==Mode.CONLL && m.getCols().isEmpty())
+				return false;
+		}
+		return true;
+	}
+
 		/** do some highlighting, but provide the full TTL data*/
 		public String colorTTL(String buffer) {
 			return buffer.replaceAll("(terms:[^ ]*)",ANSI_YLW_BK+"$1"+ANSI_RESET)
@@ -127,6 +238,11 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 				e.printStackTrace();
 				LOG.error("while reading:\n"+buffer);
 			}
+			return extractCoNLLGraph(m, includeTermConcepts);
+		}
+
+		/** as {@link #extractCoNLLGraph(String, boolean)}, on an already parsed sentence; m must not be modified */
+		protected static String extractCoNLLGraph(Model m, boolean includeTermConcepts) {
 			Vector<String> ids = new Vector<String>();
 			Vector<String> words = new Vector<String>();
 			Vector<String> annos = new Vector<String>();
@@ -320,7 +436,11 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		}
 		
 		protected static String extractTermGraph(String buffer, boolean includeTermConcepts) {
-			Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
+			return extractTermGraph(ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL"), includeTermConcepts);
+		}
+
+		/** as {@link #extractTermGraph(String, boolean)}, on an already parsed sentence; m must not be modified */
+		protected static String extractTermGraph(Model m, boolean includeTermConcepts) {
 			String word = null;
 			String result = "";
 			String s = "";
@@ -407,90 +527,199 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		
 		/** require that every line starts with a subject, sort: @ (prefix) & # (comment) > lines, lines sorted lexiconumerically, i.e., normalize length of integers (regardless of position) before sorting */
 		protected static String reorderTTLBuffer(String buffer, List<String> cols) {
-			String result ="";
+			StringBuilder result = new StringBuilder();
+			//reorder columns according to user list: the position of each column, the first mention counts
+			Map<String,Integer> columns = new HashMap<String,Integer>();
+			columns.put("a", 0); // rdf:type, e.g. nif:Word
+			columns.put("conll:WORD", 1);
+			for (String col:cols)
+				columns.putIfAbsent(col, columns.size());
+			// lines with the same sort key are kept once, the last one wins
+			TreeMap<String,String> key2line = new TreeMap<String,String>(NATURAL_ORDER);
 			try {
 				BufferedReader in = new BufferedReader(new StringReader(buffer));
-				Hashtable<String,String> key2line = new Hashtable<String,String>();
 				String line;
 				while((line=in.readLine())!=null) {
 					line=line.trim();
-					if(line.startsWith("@")) result=result+line+"\n"; else
-					if(line.startsWith("#")) result=result+line+"\n"; else 
+					if(line.startsWith("@")) result.append(line).append('\n'); else
+					if(line.startsWith("#")) result.append(line).append('\n'); else 
 					if(!line.equals("")) {
-						//reorder columns according to user list.
-						String orderedLine = "";
+						StringBuilder orderedLine = new StringBuilder();
 						List<String> statements = new ArrayList<String>(Arrays.asList(line.substring(0, line.lastIndexOf(".")-1).split(";\\s*\t"))); //TODO: only consider ; not ";"
-						List<String> columns = new ArrayList<String>();
 						 // Subject is always first. Change if complications occur.
 						if (statements.get(0).contains("nif:Word")) {
 							//do rdf:type reorder
 							List<String> concepts = new ArrayList<String>(Arrays.asList(statements.get(0).split(",")));
 							String[] subject = concepts.get(0).split("\\sa\\s");
 							if (subject.length == 2) {
-								orderedLine += subject[0] + " a nif:Word";
+								orderedLine.append(subject[0]).append(" a nif:Word");
 								if (!subject[1].contains("nif:Word")) {
 									concepts.set(0, subject[1]);
 								} else {
 									concepts.remove(0);
 								}
 							} else {
-								orderedLine += concepts.get(0);
+								orderedLine.append(concepts.get(0));
 								concepts.remove(0);
 							}
 							for (String concept:concepts) {
 								if (concept.contains("nif:Word")) continue;
-								orderedLine += ", " + concept.trim();
+								orderedLine.append(", ").append(concept.trim());
 							}
 						} else {
-							orderedLine = statements.get(0).trim();
+							orderedLine.append(statements.get(0).trim());
 						}
 						statements.remove(0);
-						//do column reorder
-						columns.add("nif:Word");
-						columns.add("conll:WORD");
-						columns.addAll(cols);
-						for (String col:columns) {
-							for (int i = 0; i < statements.size();i++) {
-								if (statements.get(i).contains(col)) {
-									orderedLine += "; " + statements.get(i).trim();
-									statements.remove(i);
-									break;
-								}
-							}
-						}
-						//add rest of columns to the end
+						//do column reorder: the first statement of each column, in the order of the columns
+						String[] ordered = new String[columns.size()];
+						StringBuilder rest = new StringBuilder();
 						String nifnext = "";
-						for (int i = 0; i < statements.size();i++) {
-							if (statements.get(i).contains("nif:nextWord")) 
-								nifnext = "; " + statements.get(i).trim();
+						for (String statement:statements) {
+							statement = statement.trim();
+							Integer col = columnIndex(columns, statement);
+							if (col != null && ordered[col] == null)
+								ordered[col] = statement;
+							else if (statement.contains("nif:nextWord"))
+								nifnext = "; " + statement;
 							else
-								orderedLine += "; " + statements.get(i).trim();
+								//add rest of columns to the end
+								rest.append("; ").append(statement);
 						}
-						if (!orderedLine.equals("")) {
-							orderedLine += nifnext + " .";
-							line = orderedLine;
+						for (String statement:ordered)
+							if (statement != null)
+								orderedLine.append("; ").append(statement);
+						orderedLine.append(rest);
+						if (orderedLine.length() > 0) {
+							orderedLine.append(nifnext).append(" .");
+							line = orderedLine.toString();
 						} 
 						
-						
 						//reorder lines
-						String tmp=line.replaceAll("\t"," ").replaceAll("([^0-9])([0-9])","$1\t$2").replaceAll("([0-9])([^0-9])","$1\t$2"); 	// key \t-split
-						String key="";
-						for(String s : tmp.split("\t")) {
-							if(s.matches("^[0-9]+$"))
-								while(s.length()<64) s="0"+s;
-							key=key+s;
-						}
-						key2line.put(key,line);
+						key2line.put(line,line);
 					}
 				}
-				List<String> keys = new ArrayList<String>(key2line.keySet());
-				Collections.sort(keys);
-				for(String key: keys)
-					result=result+key2line.get(key)+"\n";
+				for(String sorted: key2line.values())
+					result.append(sorted).append('\n');
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-			return result;
+			return result.toString();
+		}
+
+		/**
+		 * @return the position of the column of a statement, looked up by its predicate, e.g. <code>conll:POS</code>,
+		 * 			or else by the local name of the predicate, e.g. <code>POS</code>; null for any other predicate
+		 */
+		private static Integer columnIndex(Map<String,Integer> columns, String statement) {
+			int end = 0;
+			while (end < statement.length() && !Character.isWhitespace(statement.charAt(end)))
+				end++;
+			String predicate = statement.substring(0, end);
+			Integer col = columns.get(predicate);
+			if (col == null) {
+				if (predicate.endsWith(">"))
+					predicate = predicate.substring(0, predicate.length() - 1);
+				int local = Math.max(predicate.lastIndexOf(':'), Math.max(predicate.lastIndexOf('#'), predicate.lastIndexOf('/')));
+				col = columns.get(predicate.substring(local + 1));
+			}
+			return col;
+		}
+
+		/**
+		 * Lexiconumeric order of lines: as if tabs were spaces and every run of up to 64 digits was left-padded
+		 * with zeros to 64 digits, so that, e.g., <code>:s2_10</code> follows <code>:s2_9</code>. Runs of digits
+		 * that start at the same position are compared by their value, without padding them.
+		 */
+		static final Comparator<String> NATURAL_ORDER = new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				SortKeyReader x = new SortKeyReader(a);
+				SortKeyReader y = new SortKeyReader(b);
+				while (true) {
+					int runA = x.runAt();
+					int runB = y.runAt();
+					if (runA > 0 && runB > 0 && runA <= 64 && runB <= 64) {
+						int result = compareNumbers(a, x.pos, runA, b, y.pos, runB);
+						if (result != 0)
+							return result;
+						x.skip(runA);
+						y.skip(runB);
+						continue;
+					}
+					int ca = x.next();
+					int cb = y.next();
+					if (ca != cb)
+						return ca - cb;
+					if (ca < 0)
+						return 0;
+				}
+			}
+		};
+
+		/** compare two runs of digits by value, i.e., as if both were padded to the same length */
+		private static int compareNumbers(String a, int startA, int lengthA, String b, int startB, int lengthB) {
+			int endA = startA + lengthA;
+			int endB = startB + lengthB;
+			while (startA < endA-1 && a.charAt(startA) == '0') startA++;
+			while (startB < endB-1 && b.charAt(startB) == '0') startB++;
+			if (endA-startA != endB-startB)
+				return (endA-startA) - (endB-startB);
+			for (; startA < endA; startA++, startB++)
+				if (a.charAt(startA) != b.charAt(startB))
+					return a.charAt(startA) - b.charAt(startB);
+			return 0;
+		}
+
+		/** reads a line as its sort key in {@link #NATURAL_ORDER}, character by character */
+		private static final class SortKeyReader {
+			private final String line;
+			private int pos = 0;
+			/** zeros still to be read before the digit run at pos */
+			private int pad = 0;
+			/** the digit run at pos has been padded */
+			private boolean padded = false;
+
+			SortKeyReader(String line) {
+				this.line = line;
+			}
+
+			/** @return the length of the digit run starting at pos, 0 if there is none or it has been padded */
+			int runAt() {
+				if (padded || pos >= line.length() || !isDigit(line.charAt(pos)) || (pos > 0 && isDigit(line.charAt(pos-1))))
+					return 0;
+				int end = pos;
+				while (end < line.length() && isDigit(line.charAt(end))) end++;
+				return end - pos;
+			}
+
+			void skip(int length) {
+				pos += length;
+				padded = false;
+			}
+
+			/** @return the next character of the sort key, -1 at its end */
+			int next() {
+				if (pad == 0) {
+					int run = runAt();
+					if (run > 0) {
+						padded = true;
+						pad = Math.max(0, 64 - run);
+					}
+				}
+				if (pad > 0) {
+					pad--;
+					return '0';
+				}
+				if (pos >= line.length())
+					return -1;
+				char c = line.charAt(pos++);
+				padded = false;
+				return (c == '\t') ? ' ' : c;
+			}
+
+			private static boolean isDigit(char c) {
+				return c >= '0' && c <= '9';
+			}
 		}
 
 		/** note: the last column must contain literal values, not HEAD */
@@ -563,7 +792,55 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		*  Note: this CoNLL-like export has limitations, of course: it will export one property per column, hence, collapsed dependencies or 
 		*  SRL annotations cannot be reconverted */		
 		public static void printSparql(String buffer, String select, Writer out) throws IOException {
-			Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
+			printSparql(ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL"), buffer, select, out);
+		}
+
+		/** as {@link #printSparql(String, String, Writer)}, with m the already parsed buffer; m must not be modified */
+		public static void printSparql(Model m, String buffer, String select, Writer out) throws IOException {
+			printSparql(m, buffer, QueryFactory.create(select), false, out);
+		}
+
+		/** as {@link #printSparql(Model, String, String, Writer)}, with a query that has already been parsed,
+		 *  and the typed comments of the sentence if typedComments is set */
+		static void printSparql(Model m, String buffer, Query select, boolean typedComments, Writer out) throws IOException {
+			ResultSet results = QueryExecutionFactory.create(select, m).execSelect();
+			List<String> cols = results.getResultVars();
+			printConllHeader(m, buffer, cols, typedComments, out);
+
+			while(results.hasNext()) {
+				QuerySolution sol = results.next();
+				for(String col : cols)
+					if(sol.get(col)==null) out.write("_\t");		// CoNLL practice
+					else out.write(sol.get(col)+"\t");
+				out.write("\n");
+				out.flush();
+			}
+			out.write("\n");
+			out.flush();
+		}
+
+		/** CoNLL export of the columns of exporter, natively if possible, else with its SPARQL SELECT, cf. {@link #columnsAsSelect(List)} */
+		static void printConll(Model m, String buffer, CoNLLExporter exporter, boolean typedComments, Writer out) throws IOException {
+			List<String[]> rows = exporter.export(m.getGraph());
+			if (rows == null) {
+				printSparql(m, buffer, QueryFactory.create(exporter.getSelect()), typedComments, out);
+				return;
+			}
+			printConllHeader(m, buffer, exporter.getCols(), typedComments, out);
+			for (String[] row : rows) {
+				for (String cell : row)
+					if(cell==null) out.write("_\t");
+					else out.write(cell+"\t");
+				out.write("\n");
+			}
+			out.write("\n");
+			out.flush();
+		}
+
+		/** write the global.columns comment for cols and the sentence comments, from the rdfs:comment of the sentence in m,
+		 *  its typed comments (conll: literals, see CoNLLStreamExtractor.setTypedComments()) if typedComments is set,
+		 *  and the comment lines of buffer */
+		private static void printConllHeader(Model m, String buffer, List<String> cols, boolean typedComments, Writer out) throws IOException {
 			String selectComments = "PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
 					+ "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n"
 					+ "SELECT ?c WHERE {?x a nif:Sentence . ?x rdfs:comment ?c}";
@@ -579,9 +856,18 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 						comments.add(result);
 				}
 			}
-			qexec = QueryExecutionFactory.create(select, m);
-			results = qexec.execSelect();
-			List<String> cols = results.getResultVars();
+			if (typedComments) {
+				String selectTypedComments = "PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
+						+ "SELECT ?p ?v WHERE {?x a nif:Sentence . ?x ?p ?v . "
+						+ "FILTER(isLiteral(?v) && STRSTARTS(STR(?p), 'http://ufal.mff.cuni.cz/conll2009-st/task-description.html#'))}";
+				results = QueryExecutionFactory.create(selectTypedComments, m).execSelect();
+				while (results.hasNext()) {
+					QuerySolution typed = results.next();
+					// as in the comment lines, without the #
+					String key = typed.getResource("p").getURI().substring(typed.getResource("p").getURI().indexOf('#') + 1);
+					comments.add(" " + key + " = " + typed.getLiteral("v").getLexicalForm());
+				}
+			}
 			BufferedReader in = new BufferedReader(new StringReader(buffer));
 			Hashtable<String,String> key2line = new Hashtable<String,String>();
 			String line;
@@ -604,30 +890,18 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 			for (String comment : comments) {
 				out.write("#"+comment+"\n");
 			}
-
-			while(results.hasNext()) {
-				QuerySolution sol = results.next();
-				for(String col : cols)
-					if(sol.get(col)==null) out.write("_\t");		// CoNLL practice
-					else out.write(sol.get(col)+"\t");
-				out.write("\n");
-				out.flush();
-			}
-			out.write("\n");
-			out.flush();
 		}
 		
 
 	/**
-	 * Searches a string buffer that is expected to represent a sentence for any
+	 * Searches a sentence graph for any
 	 * <code>rdfs:comment</code> properties and checks them for a CoNLL-U Plus like global.columns comments.
 	 * Defaults to an empty columnNames Array if not present.
-	 * @param buffer a string buffer representing a sentence in conll-rdf
+	 * @param m a model representing a sentence in conll-rdf
 	 * @return ArrayList of column names, empty if not present.
 	 */
-	private List<String> findColumnNamesInRDFBuffer(String buffer) {
+	private static List<String> findColumnNamesInRDFBuffer(Model m) {
 			List<String> columnNames = new ArrayList<>();
-			Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
 			String selectComments = "PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
 					+ "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n"
 					+ "SELECT ?c WHERE {?x a nif:Sentence . ?x rdfs:comment ?c}";
@@ -648,48 +922,167 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 			return columnNames;
 		}
 
+	/**
+	 * Format one sentence with all modules. The sentence is parsed at most once, by the first module that queries it,
+	 * and the resulting model is shared read-only by all other modules.
+	 * @param last true for the remainder of the stream: a CONLL module without columns fails instead of skipping it
+	 */
+	private void formatSentence(String buffer, boolean last) throws IOException {
+		ParsedSentence sentence = new ParsedSentence(buffer);
+		if (moduleThreads.isEmpty()) {
+			for (Module m:modules)
+				formatSentence(m, sentence, last);
+			return;
+		}
+		rethrowModuleError();
+		Pair<ParsedSentence, Boolean> task = new ImmutablePair<ParsedSentence, Boolean>(sentence, last);
+		for (ModuleThread t:moduleThreads)
+			putTask(t, task);
+	}
+
+	private void formatSentence(Module m, ParsedSentence sentence, boolean last) throws IOException {
+		String buffer = sentence.getText();
+		if(m.getMode()==Mode.CONLLRDF) m.getOutputStream().println(reorderTTLBuffer(buffer, m.getCols()));
+		if(m.getMode()==Mode.DEBUG) System.err.println(colorTTL(reorderTTLBuffer(buffer, m.getCols())));
+		if(m.getMode()==Mode.CONLL) {
+			if (m.getCols().size() < 1) {// no column args supplied
+				LOG.info("No column names in cmd args, searching rdf comments..");
+				List<String> conllColumns = findColumnNamesInRDFBuffer(sentence.getModel());
+				if (conllColumns.size()>0) {
+					LOG.info("Using #global.comments from rdf");
+					m.setCols(conllColumns);
+				} else {
+					LOG.info("Trying conll columns now..");
+					conllColumns = CoNLLStreamExtractor.findFieldsFromComments(new BufferedReader(new StringReader(buffer.trim())), 1);
+					if (conllColumns.size()>0) {
+						m.setCols(conllColumns);
+					}
+				}
+			}
+			if (m.getCols().size() < 1) {
+				if (last)
+					throw new IOException("-conll argument needs at least one COL to export!");
+				LOG.info("Supply column names some way! (-conll arg, global.columns or rdf comments");
+			}
+			else
+				printConll(sentence.getModel(), buffer, m.getExporter(), typedComments, new OutputStreamWriter(m.getOutputStream()));
+		}
+		if(m.getMode()==Mode.QUERY) printSparql(sentence.getModel(), buffer, m.getQuery(), typedComments, new OutputStreamWriter(m.getOutputStream()));
+		if(m.getMode()==Mode.GRAMMAR) m.getOutputStream().println(extractCoNLLGraph(modelOrNull(sentence),true));
+		if(m.getMode()==Mode.SEMANTICS) m.getOutputStream().println(extractTermGraph(sentence.getModel(),true));
+		if(m.getMode()==Mode.GRAMMAR_SEMANTICS) {
+			m.getOutputStream().println(extractCoNLLGraph(modelOrNull(sentence),true));
+			m.getOutputStream().println(extractTermGraph(sentence.getModel(),false));
+		}
+	}
+
+	/** for extractCoNLLGraph(), which reports a parse error and carries on */
+	private static Model modelOrNull(ParsedSentence sentence) {
+		try {
+			return sentence.getModel();
+		} catch (RiotException e) {
+			e.printStackTrace();
+			LOG.error("while reading:\n"+sentence.getText());
+			return null;
+		}
+	}
+
+	/**
+	 * With {@link #isParallel()}, start one ModuleThread per output stream, unless all modules share one.
+	 */
+	private void initThreads() {
+		moduleThreads.clear();
+		moduleError = null;
+		if (!parallel)
+			return;
+		Map<PrintStream, ModuleThread> threadsByTarget = new LinkedHashMap<PrintStream, ModuleThread>();
+		for (Module m:modules) {
+			PrintStream target = (m.getMode()==Mode.DEBUG) ? System.err : m.getOutputStream();
+			if (!threadsByTarget.containsKey(target))
+				threadsByTarget.put(target, new ModuleThread(threadsByTarget.size(), target));
+			threadsByTarget.get(target).threadModules.add(m);
+		}
+		if (threadsByTarget.size() < 2)
+			return;
+		LOG.info("Writing to "+threadsByTarget.size()+" output streams in parallel.");
+		for (ModuleThread t:threadsByTarget.values()) {
+			t.setDaemon(true);
+			moduleThreads.add(t);
+			t.start();
+		}
+	}
+
+	private void stopThreads() throws IOException {
+		for (ModuleThread t:moduleThreads)
+			putTask(t, SHUTDOWN);
+		for (ModuleThread t:moduleThreads) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				LOG.warn("Interrupted while waiting for "+t.getName()+" to terminate.");
+				Thread.currentThread().interrupt();
+			}
+			t.target.flush();
+		}
+		moduleThreads.clear();
+		rethrowModuleError();
+	}
+
+	private void putTask(ModuleThread t, Pair<ParsedSentence, Boolean> task) throws IOException {
+		try {
+			t.queue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for "+t.getName(), e);
+		}
+	}
+
+	private synchronized void failModule(Throwable e) {
+		if (moduleError == null)
+			moduleError = e;
+	}
+
+	private void rethrowModuleError() throws IOException {
+		Throwable e = moduleError;
+		if (e == null)
+			return;
+		if (e instanceof IOException)
+			throw (IOException) e;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e instanceof Error)
+			throw (Error) e;
+		throw new IOException(e);
+	}
+
 	@Override
 	protected void processSentenceStream() throws IOException {
+		initThreads();
+		frameSentences(getInputStream(), this::formatSentence);
+		stopThreads();
+	}
+
+	/** receives the sentences of {@link CoNLLRDFFormatter#frameSentences(BufferedReader, SentenceHandler)} */
+	interface SentenceHandler {
+		void sentence(String buffer, boolean last) throws IOException;
+	}
+
+	/**
+	 * Split CoNLL-RDF into the sentences the modules format: one statement per line, the lines of a statement
+	 * separated by tabs. A new sentence starts with the first <code>@</code> or <code>#</code> line following a
+	 * line that does not start with one of these. The rest of the input is passed on as the last sentence, even
+	 * if it is blank.
+	 */
+	static void frameSentences(BufferedReader in, SentenceHandler handler) throws IOException {
 		String line;
 		String lastLine ="";
 		String buffer="";
-		while((line = getInputStream().readLine())!=null) {
+		while((line = in.readLine())!=null) {
 			line=line.replaceAll("[\t ]+"," ").trim();
 
 			if(!buffer.trim().equals(""))
 				if((line.startsWith("@") || line.startsWith("#")) && !lastLine.startsWith("@") && !lastLine.startsWith("#")) { //!buffer.matches("@[^\n]*\n?$")) {
-					for (Module m:modules) {
-						if(m.getMode()==Mode.CONLLRDF) m.getOutputStream().println(reorderTTLBuffer(buffer, m.getCols()));
-						if(m.getMode()==Mode.DEBUG) System.err.println(colorTTL(reorderTTLBuffer(buffer, m.getCols())));
-						if(m.getMode()==Mode.CONLL) {
-							if (m.getCols().size() < 1) {// no column args supplied
-								LOG.info("No column names in cmd args, searching rdf comments..");
-								List<String> conllColumns = findColumnNamesInRDFBuffer(buffer);
-								if (conllColumns.size()>0) {
-									LOG.info("Using #global.comments from rdf");
-									m.setCols(conllColumns);
-								} else {
-									LOG.info("Trying conll columns now..");
-									conllColumns = CoNLLStreamExtractor.findFieldsFromComments(new BufferedReader(new StringReader(buffer.trim())), 1);
-									if (conllColumns.size()>0) {
-										m.setCols(conllColumns);
-									}
-								}
-							}
-							if (m.getCols().size() < 1) {
-								LOG.info("Supply column names some way! (-conll arg, global.columns or rdf comments");
-							}
-							else
-								printSparql(buffer, columnsAsSelect(m.getCols()), new OutputStreamWriter(m.getOutputStream()));
-						}
-						if(m.getMode()==Mode.QUERY) printSparql(buffer, m.getSelect(), new OutputStreamWriter(m.getOutputStream()));
-						if(m.getMode()==Mode.GRAMMAR) m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-						if(m.getMode()==Mode.SEMANTICS) m.getOutputStream().println(extractTermGraph(buffer,true));
-						if(m.getMode()==Mode.GRAMMAR_SEMANTICS) {
-							m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-							m.getOutputStream().println(extractTermGraph(buffer,false));
-						}
-					}
+					handler.sentence(buffer, false);
 					buffer="";
 				}
 				//System.err.println(ANSI_RED+"> "+line+ANSI_RESET);
@@ -713,37 +1106,7 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 				lastLine=line;
 			}
 			
-		for (Module m:modules) {
-			if(m.getMode()==Mode.CONLLRDF) m.getOutputStream().println(reorderTTLBuffer(buffer, m.getCols()));
-			if(m.getMode()==Mode.DEBUG) System.err.println(colorTTL(reorderTTLBuffer(buffer, m.getCols())));
-			if(m.getMode()==Mode.CONLL) {
-				if (m.getCols().size() < 1) {
-					LOG.info("No column names in cmd args, searching rdf comments..");
-					List<String> conllColumns = findColumnNamesInRDFBuffer(buffer);
-					if (conllColumns.size()>0) {
-						LOG.info("Using #global.comments from rdf");
-						m.setCols(conllColumns);
-					} else {
-						LOG.info("Trying conll columns now..");
-						conllColumns = CoNLLStreamExtractor.findFieldsFromComments(new BufferedReader(new StringReader(buffer.trim())), 1);
-						if (conllColumns.size()>0) {
-							m.setCols(conllColumns);
-						}
-					}
-				}
-				if (m.getCols().size() < 1)
-					throw new IOException("-conll argument needs at least one COL to export!");
-				else
-					printSparql(buffer, columnsAsSelect(m.getCols()), new OutputStreamWriter(m.getOutputStream()));
-			}
-			if(m.getMode()==Mode.QUERY) printSparql(buffer, m.getSelect(), new OutputStreamWriter(m.getOutputStream()));
-			if(m.getMode()==Mode.GRAMMAR) m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-			if(m.getMode()==Mode.SEMANTICS) m.getOutputStream().println(extractTermGraph(buffer,true));
-			if(m.getMode()==Mode.GRAMMAR_SEMANTICS) {
-				m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-				m.getOutputStream().println(extractTermGraph(buffer,false));
-			}
-		}
+		handler.sentence(buffer, true);
 	}
 
 	public static void main(String[] args) throws IOException {
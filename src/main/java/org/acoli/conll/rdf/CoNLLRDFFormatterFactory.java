@@ -1,5 +1,6 @@
 package org.acoli.conll.rdf;
 
+import static org.acoli.conll.rdf.CoNLLRDFCommandLine.parseShard;
 import static org.acoli.conll.rdf.CoNLLRDFCommandLine.readString;
 import static org.acoli.conll.rdf.CoNLLRDFCommandLine.readUrl;
 
@@ -15,6 +16,7 @@ import org.acoli.conll.rdf.CoNLLRDFFormatter.Module;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 
 public class CoNLLRDFFormatterFactory {
@@ -23,10 +25,18 @@ public class CoNLLRDFFormatterFactory {
 	public CoNLLRDFFormatter buildFromCLI(String[] args) throws IOException, ParseException {
 		final CoNLLRDFFormatter formatter = new CoNLLRDFFormatter();
 		final CoNLLRDFCommandLine conllCli = new CoNLLRDFCommandLine(
-				"CoNLLRDFFormatter [-rdf [COLS]] [-conll COLS] [-debug] [-grammar] [-semantics] [-query SPARQL]",
+				"CoNLLRDFFormatter [-in FILE [-sentences ID ... | -shard I N]] [-rdf [COLS]] [-conll COLS] [-debug] [-grammar] [-semantics] [-query SPARQL] [-typedComments] [-parallel] [-gzip]",
 				"read TTL from stdin => format CoNLL-RDF or extract and highlight CoNLL (namespace conll:) and semantic (namespace terms:) subgraphs\ndefaults to -rdf if no options are selected",
 				new Option[] {
 						// Define cli options in the correct order for the help-message
+						Option.builder("in").hasArg().argName("file")
+								.desc("read TTL from FILE rather than stdin").build(),
+						Option.builder("sentences").hasArgs().argName("id").desc(
+								"read only the sentences with these IDs (s1_0), # sent_ids, numbers or ranges of numbers (1-10) of FILE, located by its index FILE.idx")
+								.build(),
+						Option.builder("shard").numberOfArgs(2).argName("i n").desc(
+								"read only shard I of N of FILE, cut at sentence boundaries into N byte ranges of about the same size")
+								.build(),
 						Option.builder("rdf").hasArgs().optionalArg(true)
 								.desc("write formatted CoNLL-RDF to stdout (sorted by list of CoNLL COLS, if provided)")
 								.build(),
@@ -37,13 +47,37 @@ public class CoNLLRDFFormatterFactory {
 						new Option("semantics", false,
 								"write semantic graph to stdout.\nif combined with -grammar, skip type assignments"),
 						new Option("query", true, "write TSV generated from SPARQL statement to stdout"),
-						new Option("sparqltsv", true, "deprecated: use -query instead") },
+						new Option("sparqltsv", true, "deprecated: use -query instead"),
+						new Option("typedComments", false,
+								"with -conll and -query, also write the conll: literals of a sentence as # key = value comments, cf. CoNLLStreamExtractor -typedComments"),
+						new Option("parallel", false,
+								"write to different output streams (stdout, stderr) in parallel threads"),
+						new Option("gzip", false, "write gzip-compressed output, compressed in parallel blocks") },
 				LOG);
 		// TODO which args are optional?
 		final CommandLine cmd = conllCli.parseArgs(args);
 
 		Module module;
 
+		if (cmd.hasOption("sentences") && !cmd.hasOption("in")) {
+			throw new ParseException("-sentences requires -in FILE");
+		}
+		if (cmd.hasOption("shard") && (!cmd.hasOption("in") || cmd.hasOption("sentences"))) {
+			throw new ParseException("-shard requires -in FILE and cannot be combined with -sentences");
+		}
+		if (cmd.hasOption("shard")) {
+			Pair<Integer, Integer> shard = parseShard(cmd.getOptionValues("shard"));
+			formatter.setInputStream(SentenceIndex.openShard(cmd.getOptionValue("in"), shard.getLeft(), shard.getRight()));
+		} else if (cmd.hasOption("in")) {
+			formatter.setInputStream(SentenceIndex.openInput(cmd.getOptionValue("in"), cmd.getOptionValues("sentences")));
+		}
+		formatter.setParallel(cmd.hasOption("parallel"));
+		formatter.setTypedComments(cmd.hasOption("typedComments"));
+		if (cmd.hasOption("gzip")) {
+			// before the modules, which write to the formatter's output stream
+			formatter.setOutputStream(CompressedStreams.gzipStdout());
+		}
+
 		if (cmd.hasOption("conll")) {
 			module = new Module();
 			module.setMode(Mode.CONLL);
@@ -2,18 +2,13 @@ package org.acoli.conll.rdf;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.PrintStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 import com.fasterxml.jackson.core.JsonParser.Feature;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -25,6 +20,7 @@ import org.acoli.conll.rdf.CoNLLRDFFormatter.Mode;
 import org.acoli.conll.rdf.CoNLLRDFFormatter.Module;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.log4j.Logger;
 
@@ -33,6 +29,17 @@ public class CoNLLRDFManager {
 
 	private ObjectNode config;
 	private ArrayList<CoNLLRDFComponent> componentStack;
+	private final List<Thread> componentThreads = new ArrayList<Thread>();
+	// pipes.get(i) connects componentStack.get(i) to componentStack.get(i+1)
+	private final List<BoundedPipe> pipes = new ArrayList<BoundedPipe>();
+	// set if the pipeline runs on shards of the input rather than one thread per component
+	private ShardedPipeline sharded = null;
+	// set if only a shard of the input file is processed, as shard I of N
+	private Pair<Integer, Integer> shard = null;
+	// how often the fill levels of the pipes are logged, at log level DEBUG
+	static final long QUEUE_REPORT_MILLIS = 10000;
+	// logs the fill levels while the components run, null unless at log level DEBUG
+	private Thread monitor = null;
 
 	PrintStream output;
 	BufferedReader input;
@@ -68,39 +75,45 @@ public class CoNLLRDFManager {
 //		TODO: remove --- Car car = objectMapper.readValue(file, Car.class);
 	}
 
+	/**
+	 * @param confEntry
+	 * 			System.in or a file, gzip-compressed input is recognized by its content
+	 */
 	private BufferedReader parseConfAsInputStream(String confEntry) throws IOException {
-		BufferedReader input;
-		if (confEntry.equals("System.in")) {
-			input = new BufferedReader(new InputStreamReader(System.in));
-		} else if (new File(confEntry).canRead()) {
-			if (confEntry.endsWith(".gz")) {
-				input = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(confEntry))));
-			} else {
-				input = new BufferedReader(new FileReader(confEntry));
-			}
-		} else {
-			throw new IOException("Could not read from " + confEntry);
-		}
-		return input;
+		return CompressedStreams.openInput(confEntry);
 	}
 
+	/**
+	 * @param confEntry
+	 * 			System.out or a file, gzip-compressed if it ends with .gz
+	 */
 	private PrintStream parseConfAsOutputStream(String confEntry) throws IOException {
-		PrintStream output;
-		if (confEntry.equals("System.out")) {
-			output = System.out;
-		} else if (new File(confEntry).canWrite()) {
-			output = new PrintStream(confEntry);
-		} else if (new File(confEntry).createNewFile()) {
-			output = new PrintStream(confEntry);
-		} else {
-			throw new IOException("Could not write to " + confEntry);
-		}
-		return output;
+		return CompressedStreams.openOutput(confEntry);
+	}
+
+	/**
+	 * Process only shard <code>i</code> of <code>n</code> of the input file, with the sentence IDs of the entire file,
+	 * see {@link SentenceIndex#shard(int, int)}. The outputs of all shards, concatenated in order, are the output for
+	 * the entire file.
+	 */
+	public void setShard(int i, int n) {
+		shard = Pair.of(i, n);
 	}
 
 	public void buildComponentStack() throws IOException, ParseException {
 		//READ INPUT PARAMETER
-		input = parseConfAsInputStream(config.get("input").asText());
+		int firstSentence = 1;
+		if (shard != null) {
+			String path = config.get("input").asText();
+			if (path.equals("System.in"))
+				throw new IOException("A shard can only be read from an input file, not from System.in");
+			SentenceIndex index = SentenceIndex.forFile(new File(path));
+			if (!index.isRDF())
+				firstSentence = index.shard(shard.getLeft(), shard.getRight())[0];
+			input = index.openShard(shard.getLeft(), shard.getRight());
+		} else {
+			input = parseConfAsInputStream(config.get("input").asText());
+		}
 
 		//READ OUTPUT PARAMETER
 		output = parseConfAsOutputStream(config.get("output").asText());
@@ -110,52 +123,191 @@ public class CoNLLRDFManager {
 			throw new IOException("File is no valid JSON config.");
 		}
 
+		//READ TRANSPORT PARAMETER
+		// "graph" (default): hand sentence graphs over in-process where both components support it
+		// "turtle": always pipe Turtle text from one component to the next
+		boolean graphTransport = true;
+		if (config.get("transport") != null) {
+			String transport = config.get("transport").asText();
+			if (transport.equals("turtle"))
+				graphTransport = false;
+			else if (!transport.equals("graph"))
+				throw new IOException("Unknown transport " + transport + ", use graph or turtle.");
+		}
+
+		//READ QUEUE CAPACITY PARAMETER
+		// sentences waiting between two components, for all pipes unless overridden by the sending component
+		int defaultCapacity = parseQueueCapacity(config, SentencePipe.DEFAULT_CAPACITY);
+		List<Integer> capacities = new ArrayList<Integer>();
+
 		//BUILD COMPONENT STACK
 		if (componentStack == null)
 			componentStack = new ArrayList<CoNLLRDFComponent>();
 		else
 			componentStack.clear();
+		pipes.clear();
 
-		// First inputStream is always main input
-		BufferedReader nextInput = input;
 		// Traverse pipeline array
 		for (JsonNode pipelineElement:config.withArray("pipeline")) {
 			if (!pipelineElement.getNodeType().equals(JsonNodeType.OBJECT)) {
 				throw new IOException("File is no valid JSON config.");
 			}
 
-			// Create CoNLLRDFComponents (StreamExtractor, Updater, Formatter ...)
-			CoNLLRDFComponent component;
-			if (pipelineElement.get("class").asText().equals(CoNLLStreamExtractor.class.getSimpleName())) {
-				component = buildStreamExtractor((ObjectNode) pipelineElement);
-			} else if (pipelineElement.get("class").asText().equals(CoNLLRDFUpdater.class.getSimpleName())) {
-				component = buildUpdater((ObjectNode) pipelineElement);
-			} else if (pipelineElement.get("class").asText().equals(CoNLLRDFFormatter.class.getSimpleName())) {
-				component = buildFormatter((ObjectNode) pipelineElement);
-			} else if (pipelineElement.get("class").asText().equals(SimpleLineBreakSplitter.class.getSimpleName())) {
-				component = buildSimpleLineBreakSplitter((ObjectNode) pipelineElement);
-			} else {
-				throw new IOException("File is no valid JSON config.");
+			componentStack.add(buildComponent((ObjectNode) pipelineElement, null));
+			capacities.add(parseQueueCapacity(pipelineElement, defaultCapacity));
+		}
+		if (shard != null && !componentStack.isEmpty() && componentStack.get(0) instanceof CoNLLStreamExtractor) {
+			CoNLLStreamExtractor extractor = (CoNLLStreamExtractor) componentStack.get(0);
+			if (extractor.getColumns().isEmpty())
+				throw new IOException("A shard needs a CoNLLStreamExtractor with columns, as the column comment is not part of it.");
+			extractor.setFirstSentence(firstSentence);
+		}
+
+		//READ WORKERS PARAMETER
+		// run copies of the entire pipeline on shards of the input, if the components allow for it
+		sharded = null;
+		if (config.get("workers") != null) {
+			int workers = config.get("workers").asInt(0);
+			if (workers <= 0)
+				workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+			int shardSize = ShardedPipeline.DEFAULT_SHARD_SIZE;
+			if (config.get("shardSize") != null)
+				shardSize = config.get("shardSize").asInt(0);
+			if (shardSize < 1)
+				throw new IOException("Invalid shardSize " + config.get("shardSize").asText() + ", use a number of sentences >= 1.");
+			if (supportsSharding()) {
+				buildShardedPipeline(workers, shardSize, graphTransport);
+				sharded.setFirstSentence(firstSentence);
+				return;
 			}
-			componentStack.add(component);
+			LOG.warn("Running one thread per component: sharding needs a CoNLLStreamExtractor with columns first, "
+					+ "no lookahead, lookback, store or metrics in updaters, and formatters writing to the output only.");
+		}
 
-			// Define Pipeline I/O
+		// Define Pipeline I/O
+		// First inputStream is always main input
+		BufferedReader nextInput = input;
+		SentencePipe nextSentenceInput = null;
+		for (int i = 0; i < componentStack.size(); i++) {
+			CoNLLRDFComponent component = componentStack.get(i);
 			// always use previously defined input... first main input, later piped input
-			component.setInputStream(nextInput);
-			if (componentStack.size() == config.withArray("pipeline").size()) {
+			if (nextSentenceInput != null)
+				component.setSentenceInput(nextSentenceInput);
+			else
+				component.setInputStream(nextInput);
+			if (i == 0 && component instanceof CoNLLStreamExtractor && !config.get("input").asText().equals("System.in") && shard == null)
+				// read the input file memory-mapped, where possible
+				((CoNLLStreamExtractor) component).setInputFile(new File(config.get("input").asText()));
+			nextSentenceInput = null;
+			if (i == componentStack.size()-1) {
 				// last component, final output
 				component.setOutputStream(output);
+			} else if (graphTransport && component.producesSentenceOutput() && componentStack.get(i+1).acceptsSentenceInput()) {
+				// intermediate pipeline to next component, handing over sentence graphs without serializing them
+				nextSentenceInput = new SentencePipe(capacities.get(i));
+				component.setSentenceOutput(nextSentenceInput);
+				pipes.add(nextSentenceInput);
 			} else {
-				// intermediate pipeline to next component (using PipedOutputStream->PipedInputStream)
-				PipedOutputStream compOutput = new PipedOutputStream();
-				componentStack.get(componentStack.size()-1).setOutputStream(new PrintStream(compOutput));
-				nextInput = new BufferedReader(new InputStreamReader(new PipedInputStream(compOutput)));
+				// intermediate pipeline to next component, handing over Turtle text sentence by sentence
+				TextPipe pipe = new TextPipe(capacities.get(i));
+				component.setOutputStream(pipe.output());
+				nextInput = pipe.input();
+				pipes.add(pipe);
 			}
 		}
 	}
 
+	/**
+	 * Create a CoNLLRDFComponent (StreamExtractor, Updater, Formatter ...)
+	 * @param template
+	 * 			a component built from the same config, to share read-only data with, or null
+	 */
+	private CoNLLRDFComponent buildComponent(ObjectNode pipelineElement, CoNLLRDFComponent template) throws IOException, ParseException {
+		if (pipelineElement.get("class").asText().equals(CoNLLStreamExtractor.class.getSimpleName())) {
+			return buildStreamExtractor(pipelineElement);
+		} else if (pipelineElement.get("class").asText().equals(CoNLLRDFUpdater.class.getSimpleName())) {
+			return buildUpdater(pipelineElement, (CoNLLRDFUpdater) template);
+		} else if (pipelineElement.get("class").asText().equals(CoNLLRDFFormatter.class.getSimpleName())) {
+			return buildFormatter(pipelineElement);
+		} else if (pipelineElement.get("class").asText().equals(SimpleLineBreakSplitter.class.getSimpleName())) {
+			return buildSimpleLineBreakSplitter(pipelineElement);
+		} else {
+			throw new IOException("File is no valid JSON config.");
+		}
+	}
+
+	/**
+	 * @return true if the component stack can run on shards, see {@link ShardedPipeline}
+	 */
+	private boolean supportsSharding() {
+		if (!ShardedPipeline.supports(componentStack))
+			return false;
+		// the formatter's output is redirected per shard, and written to the pipeline's output in order
+		for (int i = 0; i < componentStack.size(); i++) {
+			if (componentStack.get(i) instanceof CoNLLRDFFormatter) {
+				List<Module> modules = ((CoNLLRDFFormatter) componentStack.get(i)).getModules();
+				if (i < componentStack.size()-1 || (!modules.isEmpty() && modules.get(0).getOutputStream() != output))
+					return false;
+			}
+		}
+		return true;
+	}
 
-	private CoNLLRDFComponent buildStreamExtractor(ObjectNode conf) throws IOException {
+	/**
+	 * Build a copy of the component stack per worker. External models of updaters are loaded once and shared.
+	 * Within a worker, each component runs on a single thread.
+	 */
+	private void buildShardedPipeline(int workers, int shardSize, boolean graphTransport) throws IOException, ParseException {
+		List<List<CoNLLRDFComponent>> copies = new ArrayList<List<CoNLLRDFComponent>>();
+		copies.add(componentStack);
+		for (int w = 1; w < workers; w++) {
+			List<CoNLLRDFComponent> copy = new ArrayList<CoNLLRDFComponent>();
+			int i = 0;
+			for (JsonNode pipelineElement:config.withArray("pipeline"))
+				copy.add(buildComponent((ObjectNode) pipelineElement, componentStack.get(i++)));
+			copies.add(copy);
+		}
+		for (List<CoNLLRDFComponent> copy:copies) {
+			for (CoNLLRDFComponent component:copy) {
+				if (component instanceof CoNLLStreamExtractor)
+					((CoNLLStreamExtractor) component).setThreads(1);
+				else if (component instanceof CoNLLRDFUpdater)
+					((CoNLLRDFUpdater) component).setThreads(1);
+				else if (component instanceof CoNLLRDFFormatter)
+					((CoNLLRDFFormatter) component).setParallel(false);
+			}
+		}
+		sharded = new ShardedPipeline(copies, input, output, shardSize, graphTransport);
+	}
+
+	/**
+	 * @return the pipeline run on shards of the input, or null if each component runs on a thread of its own
+	 */
+	ShardedPipeline getShardedPipeline() {
+		return sharded;
+	}
+
+	/**
+	 * @return the <code>queueCapacity</code> of a config node, or <code>defaultCapacity</code> if not given
+	 */
+	private static int parseQueueCapacity(JsonNode conf, int defaultCapacity) throws IOException {
+		if (conf.get("queueCapacity") == null)
+			return defaultCapacity;
+		int capacity = conf.get("queueCapacity").asInt(0);
+		if (capacity < 1)
+			throw new IOException("Invalid queueCapacity " + conf.get("queueCapacity").asText() + ", use a number of sentences >= 1.");
+		return capacity;
+	}
+
+	/**
+	 * @return the pipes between the components, the first one connects the first and the second component
+	 */
+	List<BoundedPipe> getPipes() {
+		return pipes;
+	}
+
+
+	private CoNLLRDFComponent buildStreamExtractor(ObjectNode conf) throws IOException, ParseException {
 		CoNLLStreamExtractor ex = new CoNLLStreamExtractor();
 		ex.setBaseURI(conf.get("baseURI").asText());
 		ex.getColumns().clear();
@@ -163,11 +315,21 @@ public class CoNLLRDFManager {
 		for (JsonNode col:conf.withArray("columns")) {
 			ex.getColumns().add(col.asText());
 		}
+		if (conf.get("threads") != null)
+			ex.setThreads(conf.get("threads").asInt(1));
+		if (conf.get("outputFormat") != null)
+			ex.setOutputFormat(OutputFormat.forOption(conf.get("outputFormat").asText()));
+		if (conf.get("typedComments") != null)
+			ex.setTypedComments(conf.get("typedComments").asBoolean());
 
 		return ex;
 	}
 
-	private CoNLLRDFComponent buildUpdater(ObjectNode conf) throws IOException, ParseException {
+	/**
+	 * @param template
+	 * 			an updater to share the external models with, or null to load them
+	 */
+	private CoNLLRDFComponent buildUpdater(ObjectNode conf, CoNLLRDFUpdater template) throws IOException, ParseException {
 
 		// READ THREAD PARAMETERS
 		int threads = 0;
@@ -175,6 +337,10 @@ public class CoNLLRDFManager {
 			threads = conf.get("threads").asInt(0);
 		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("","",threads);
 
+		// READ MAX IN FLIGHT PARAMETER
+		if (conf.get("maxInFlight") != null)
+			updater.setMaxInFlight(conf.get("maxInFlight").asInt(0));
+
 		// READ GRAPHSOUT PARAMETERS
 		if (conf.get("graphsoutDIR") != null) {
 			String graphOutputDir = conf.get("graphsoutDIR").asText("");
@@ -220,6 +386,19 @@ public class CoNLLRDFManager {
 				updater.activatePrefixDeduplication();
 		}
 
+		// READ OUTPUT FORMAT
+		if (conf.get("outputFormat") != null)
+			updater.setOutputFormat(OutputFormat.forOption(conf.get("outputFormat").asText()));
+
+		// READ STORE
+		if (conf.get("store") != null)
+			updater.activateStore(conf.get("store").asText());
+
+		// READ METRICS REPORT
+		if (conf.get("metrics") != null)
+			updater.activateMetricsReport(conf.get("metrics").asText(),
+					(conf.get("metricsInterval") != null) ? conf.get("metricsInterval").asInt(60) : 60);
+
 		// READ ALL UPDATES
 		// should be <#UPDATEFILENAMEORSTRING, #UPDATESTRING, #UPDATEITER>
 		List<Triple<String, String, String>> updates = new ArrayList<Triple<String, String, String>>();
@@ -239,6 +418,10 @@ public class CoNLLRDFManager {
 		updater.parseUpdates(updates);
 
 		// READ ALL MODELS
+		if (template != null) {
+			updater.shareGraphs(template);
+			return updater;
+		}
 		for (JsonNode model:conf.withArray("models")) {
 			List<String> models = new ArrayList<String>();
 			String uri = model.get("source").asText();
@@ -269,6 +452,11 @@ public class CoNLLRDFManager {
 	private CoNLLRDFComponent buildFormatter(ObjectNode conf) throws IOException {
 		CoNLLRDFFormatter f = new CoNLLRDFFormatter();
 
+		if (conf.get("parallel") != null)
+			f.setParallel(conf.get("parallel").asBoolean(false));
+		if (conf.get("typedComments") != null)
+			f.setTypedComments(conf.get("typedComments").asBoolean());
+
 		if (conf.withArray("modules").size() <= 0) {
 			Module m = new Module();
 			m.setMode(Mode.CONLLRDF);
@@ -339,9 +527,70 @@ public class CoNLLRDFManager {
 	}
 
 	public void start() {
-		for (CoNLLRDFComponent component:componentStack) {
-			Thread t = new Thread(component);
+		if (sharded != null) {
+			Thread t = new Thread(sharded, "ShardedPipeline");
+			componentThreads.add(t);
+			t.start();
+			return;
+		}
+		for (int i = 0; i < componentStack.size(); i++) {
+			Thread t = new Thread(componentStack.get(i));
+			// a failed component must not leave its neighbours waiting forever
+			final int position = i;
+			t.setUncaughtExceptionHandler((thread, e) -> {
+				LOG.error(componentStack.get(position).getClass().getSimpleName() + " failed, aborting the pipeline", e);
+				if (position > 0)
+					pipes.get(position - 1).abort();
+				if (position < pipes.size())
+					pipes.get(position).abort();
+			});
+			componentThreads.add(t);
 	        t.start();
 		}
+		if (LOG.isDebugEnabled() && !pipes.isEmpty()) {
+			monitor = new Thread(this::logQueueDepths, "queue-monitor");
+			monitor.setDaemon(true);
+			monitor.start();
+		}
+	}
+
+	/**
+	 * Log the fill level of each pipe periodically, a full pipe marks the component after it as the bottleneck.
+	 * Stops once all components have finished, or when interrupted by {@link #join()}.
+	 */
+	private void logQueueDepths() {
+		try {
+			while (true) {
+				// the last component finishes last, unless the pipeline is aborted
+				componentThreads.get(componentThreads.size() - 1).join(QUEUE_REPORT_MILLIS);
+				boolean running = false;
+				for (Thread t : componentThreads)
+					running |= t.isAlive();
+				if (!running)
+					return;
+				StringBuilder depths = new StringBuilder("Queue depths:");
+				for (int i = 0; i < pipes.size(); i++) {
+					depths.append(" ").append(componentStack.get(i).getClass().getSimpleName())
+						.append(" -> ").append(componentStack.get(i+1).getClass().getSimpleName())
+						.append(" ").append(pipes.get(i).size()).append("/").append(pipes.get(i).capacity());
+				}
+				LOG.debug(depths);
+			}
+		} catch (InterruptedException e) {
+			// done
+		}
+	}
+
+	/**
+	 * Wait for all components started by {@link #start()} to finish.
+	 */
+	public void join() throws InterruptedException {
+		for (Thread t:componentThreads) {
+			t.join();
+		}
+		if (monitor != null) {
+			monitor.interrupt();
+			monitor.join();
+		}
 	}
 }
@@ -4,8 +4,10 @@ import java.io.File;
 import java.io.IOException;
 
 import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 
 public class CoNLLRDFManagerFactory {
@@ -13,9 +15,13 @@ public class CoNLLRDFManagerFactory {
 
 	CoNLLRDFManager buildFromCLI(String[] args) throws IOException, ParseException {
 		final CoNLLRDFManager manager = new CoNLLRDFManager();
-		final CommandLine cmd = new CoNLLRDFCommandLine("CoNLLRDFManager -c JSON",
+		final CommandLine cmd = new CoNLLRDFCommandLine("CoNLLRDFManager -c JSON [-shard I N]",
 				"Build a conll-rdf pipeline from a json configuration",
-				new Options().addRequiredOption("c", "config", true, "Specify JSON config file"), LOG).parseArgs(args);
+				new Options().addRequiredOption("c", "config", true, "Specify JSON config file")
+						.addOption(Option.builder("shard").numberOfArgs(2).argName("i n").desc(
+								"process only shard I of N of the input file, cut at sentence boundaries into N byte ranges of about the same size")
+								.build()),
+				LOG).parseArgs(args);
 
 		if (cmd.hasOption("c")) {
 			try {
@@ -27,6 +33,10 @@ public class CoNLLRDFManagerFactory {
 		} else {
 			throw new ParseException("No config file specified.");
 		}
+		if (cmd.hasOption("shard")) {
+			Pair<Integer, Integer> shard = CoNLLRDFCommandLine.parseShard(cmd.getOptionValues("shard"));
+			manager.setShard(shard.getLeft(), shard.getRight());
+		}
 		return manager;
 	}
 }
@@ -39,8 +39,16 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
+import javax.management.ObjectName;
+
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
@@ -53,6 +61,8 @@ import org.apache.jena.query.QueryParseException;
 import org.apache.jena.rdf.listeners.ChangedListener;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResIterator;
+import org.apache.jena.sparql.graph.GraphReadOnly;
 import org.apache.jena.update.Update;
 import org.apache.jena.update.UpdateAction;
 import org.apache.jena.update.UpdateFactory;
@@ -71,33 +81,47 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 
 	// Configuration Variables with defaults set
 	private boolean prefixDeduplication = false;
+	private OutputFormat outputFormat = OutputFormat.TURTLE;
 	private int threads = 0;
+	private int maxInFlight = 0;
 	private int lookahead_snts = 0;
 	private int lookback_snts = 0;
 	private File graphOutputDir = null;
 	private File triplesOutputDir = null;
+	private SentenceStore store = null;
+	private File metricsReport = null;
+	private int metricsInterval = 60;
 
 	//for updates
 	private final List<Triple<String, String, String>> updates = Collections.synchronizedList(new ArrayList<Triple<String, String, String>>());
+	// the same updates, parsed once by parseUpdates() and shared read-only by all UpdateThreads
+	private final List<UpdateRequest> updateRequests = Collections.synchronizedList(new ArrayList<UpdateRequest>());
 	//For graphsout and triplesout
 	private final List<String> graphOutputSentences = Collections.synchronizedList(new ArrayList<String>());
 	private final List<String> triplesOutputSentences = Collections.synchronizedList(new ArrayList<String>());
 
 	// for thread handling
-	private boolean running = false;
 	private final List<UpdateThread> updateThreads = Collections.synchronizedList(new ArrayList<UpdateThread>());
-	// Buffer providing each thread with its respective sentence(s) to process
+	// Bounded work queue shared by all UpdateThreads. Each task holds the sentence(s) to process
 	// <List:lookbackBuffer>, <String:currentSentence>, <List:lookaheadBuffer>
-	private final List<Triple<List<String>, String, List<String>>> sentBufferThreads = Collections.synchronizedList(new ArrayList<Triple<List<String>, String, List<String>>>());
+	// and the sequence number of its slot in sentBufferOut.
+	private BlockingQueue<Pair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long>> workQueue = null;
+	// Poison pill, tells an UpdateThread to terminate once the queue has been worked down.
+	private static final Pair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long> SHUTDOWN =
+			new ImmutablePair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long>(null, null);
 
-	private final List<String> sentBufferLookahead = Collections.synchronizedList(new ArrayList<String>());
-	private final List<String> sentBufferLookback = Collections.synchronizedList(new ArrayList<String>());
+	// sliding window of sentences, each is parsed only once for all threads that need it
+	private final List<ParsedSentence> sentBufferLookahead = Collections.synchronizedList(new ArrayList<ParsedSentence>());
+	private final List<ParsedSentence> sentBufferLookback = Collections.synchronizedList(new ArrayList<ParsedSentence>());
 	// Buffer for outputting sentences in original order
-	private final List<String> sentBufferOut = Collections.synchronizedList(new ArrayList<String>()); 
+	private SentenceReorderBuffer<ParsedSentence> sentBufferOut = null;
+	// prefixes last written by flushOutputBuffer, for prefixDeduplication
+	private String prefixCacheOut = new String();
 
-	//for statistics
-	private final List<List<Pair<Integer,Long>>> dRTs = Collections.synchronizedList(new ArrayList<List<Pair<Integer,Long>>>());
-	// iterations and execution time of each update in seconds
+	//for statistics, one UpdateMetrics per update, shared by all threads and registered with JMX while streaming
+	private static final AtomicInteger instances = new AtomicInteger();
+	private final int instance = instances.incrementAndGet();
+	private final List<UpdateMetrics> updateMetrics = Collections.synchronizedList(new ArrayList<UpdateMetrics>());
 
 
 	private class UpdateThread extends Thread {
@@ -111,7 +135,8 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 
 		 * In the current implementation, each thread manages its own in-memory Dataset.
 		 * This is the fastest approach since no concurring access on a single Datasets occurs.
-		 * However: lots of RAM may be needed.
+		 * The external models are not copied, as DatasetFactory.create() would do: the Dataset links the read-only
+		 * graphs shared by all threads.
 		 * 
 		 * @param updater
 		 * 				The calling Updater (= ThreadHandler)
@@ -119,9 +144,10 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 				The id of this Thread.
 		 */
 		public UpdateThread(CoNLLRDFUpdater updater, int id) {
+			super("UpdateThread-"+id);
 			this.updater = updater;
 			threadID = id;
-			memDataset = DatasetFactory.create();
+			memDataset = DatasetFactory.createGeneral();
 			Iterator<String> iter = updater.dataset.listNames();
 			while(iter.hasNext()) {
 				String graph = iter.next();
@@ -133,28 +159,32 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		
 		/**
 		 * Run the update thread.
-		 * Load the buffer, execute the updates with all iterations and graphsout, unload the buffer.
+		 * Takes sentences from the work queue until the SHUTDOWN task is received.
+		 * For each: load the buffer, execute the updates with all iterations and graphsout, unload the buffer
+		 * and complete the task's slot in the output buffer with the resulting sentence.
 		 */
 		public void run() {
-			while (updater.running) {
-				//Execute Thread
+			while (true) {
+				Pair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long> task;
+				try {
+					task = updater.workQueue.take();
+				} catch (InterruptedException e) {
+					LOG.warn("Interrupted while waiting for work: "+threadID);
+					return;
+				}
+				if (task == SHUTDOWN)
+					return;
 
-				LOG.trace("NOW Processing on thread "+threadID+": outputbuffersize "+sentBufferOut.size());
-				Triple<List<String>, String, List<String>> sentBufferThread = sentBufferThreads.get(threadID);
-				StringWriter out = new StringWriter();
+				//Execute Thread
+				LOG.trace("NOW Processing on thread "+threadID);
+				Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>> sentBufferThread = task.getLeft();
+				ParsedSentence result = new ParsedSentence("");
 				try {
 					loadBuffer(sentBufferThread);
 					
-					List<Pair<Integer,Long> > ret = executeUpdates(updates);
-					if (dRTs.get(threadID).isEmpty())
-						dRTs.get(threadID).addAll(ret);
-					else
-						for (int x = 0; x < ret.size(); ++x)
-							dRTs.get(threadID).set(x, new ImmutablePair<Integer, Long>(
-									dRTs.get(threadID).get(x).getKey() + ret.get(x).getKey(),
-									dRTs.get(threadID).get(x).getValue() + ret.get(x).getValue()));
+					executeUpdates(updates, updateRequests);
 					
-					unloadBuffer(sentBufferThread, out);
+					result = unloadBuffer(sentBufferThread);
 				} catch (Exception e) {
 //					memDataset.begin(ReadWrite.WRITE);
 					memDataset.getDefaultModel().removeAll();
@@ -164,32 +194,15 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 //					memDataset.end();
 					e.printStackTrace();
 //					continue;
+				} catch (Error e) {
+					// don't leave the reading thread waiting for a sentence that never arrives
+					sentBufferOut.fail(task.getRight(), e);
+					throw e;
 				}
 
-				// synchronized write access to sentBuffer in order to avoid corruption
-				synchronized(updater) {
-				LOG.trace("NOW PRINTING on thread "+threadID+": outputbuffersize "+sentBufferOut.size());
-				for (int i = 0; i < sentBufferOut.size(); i++) {
-					if (sentBufferOut.get(i).equals(String.valueOf(threadID))) {
-						sentBufferOut.set(i, out.toString());
-						break;
-					}
-				}				
-				
-				//go to sleep and let Updater take control
-					LOG.trace("Updater notified by "+threadID);
-					updater.notify();
-
-				}
-				try {
-					synchronized (this) {
-						LOG.trace("Waiting: "+threadID);
-						wait();
-					}
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+				// hand the result back to the reading thread, which outputs it in original order
+				LOG.trace("NOW PRINTING on thread "+threadID+": sentence No. "+task.getRight());
+				sentBufferOut.complete(task.getRight(), result);
 			}
 		}
 		
@@ -199,24 +212,25 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 			the model to be read.
 		 * @throws Exception
 		 */
-		private void loadBuffer(Triple<List<String>, String, List<String>> sentBufferThread) throws Exception { //TODO: adjust for TXN-Models
-			//check validity of current sentence
-			isValidUTF8(sentBufferThread.getMiddle(), "Input data encoding issue for \"" + sentBufferThread.getMiddle() + "\"");
+		private void loadBuffer(Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>> sentBufferThread) throws Exception { //TODO: adjust for TXN-Models
+			//check validity of current sentence, if read from text
+			if (sentBufferThread.getMiddle().hasText())
+				isValidUTF8(sentBufferThread.getMiddle().getText(), "Input data encoding issue for \"" + sentBufferThread.getMiddle().getText() + "\"");
 			//load ALL
 			try {
 //				memDataset.begin(ReadWrite.WRITE);
 				
 				// for lookback
-				for (String sent:sentBufferThread.getLeft()) {
-					memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookback").read(new StringReader(sent),null, "TTL");
+				for (ParsedSentence sent:sentBufferThread.getLeft()) {
+					sent.addTo(memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookback"));
 				}
 				
 				// for current sentence
-				memDataset.getDefaultModel().read(new StringReader(sentBufferThread.getMiddle()),null, "TTL");
+				sentBufferThread.getMiddle().addTo(memDataset.getDefaultModel());
 
 				// for lookahead
-				for (String sent:sentBufferThread.getRight()) {
-					memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookahead").read(new StringReader(sent),null, "TTL");
+				for (ParsedSentence sent:sentBufferThread.getRight()) {
+					sent.addTo(memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookahead"));
 				}
 				
 //				memDataset.commit();
@@ -224,7 +238,7 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 //				memAccessor.add(m);
 //				memDataset.getDefaultModel().setNsPrefixes(m.getNsPrefixMap());
 			} catch (Exception ex) {
-				LOG.error("Exception while reading: " + sentBufferThread.getMiddle());
+				LOG.error("Exception while reading: " + sentBufferThread.getMiddle().getText());
 				throw ex;
 			} finally {
 //				memDataset.end();
@@ -235,27 +249,28 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		/**
 		 * Unloads Data from this thread's working model.
 		 * Includes comments from original data.
-		 * @param buffer
+		 * @param sentBufferThread
 		 * 			Original data for extracting comments.
-		 * @param out
-		 * 			Output Writer.
+		 * @return the resulting sentence: as a graph if it is handed over to a SentencePipe, as TTL otherwise.
 		 * @throws Exception
 		 */
-		private void unloadBuffer(Triple<List<String>, String, List<String>> sentBufferThread, Writer out) throws Exception { //TODO: adjust for TXN-Models
-			String buffer = sentBufferThread.getMiddle();
+		private ParsedSentence unloadBuffer(Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>> sentBufferThread) throws Exception { //TODO: adjust for TXN-Models
+			ParsedSentence sentence = sentBufferThread.getMiddle();
+			StringWriter out = new StringWriter();
 			try {
-				BufferedReader in = new BufferedReader(new StringReader(buffer));
-				String line;
-				while((line=in.readLine())!=null) {
-					line=line.trim();
-					if(line.startsWith("#")) out.write(line+"\n");
+				if (store != null)
+					store.add(memDataset.getDefaultModel());
+				if (getSentenceOutput() != null)
+					return new ParsedSentence(memDataset.getDefaultModel(), sentence.getComments());
+				for (String comment:sentence.getComments()) {
+					out.write(comment+"\n");
 				}
-				memDataset.getDefaultModel().write(out, "TTL");
+				outputFormat.write(memDataset.getDefaultModel(), out);
 				out.write("\n");
 				out.flush();
 			} catch (Exception ex) {
 //				memDataset.abort();
-				LOG.error("Exception while unloading: " + buffer);
+				LOG.error("Exception while unloading: " + sentence.getText());
 			} finally {
 //				memDataset.begin(ReadWrite.WRITE);
 				memDataset.getDefaultModel().removeAll();
@@ -264,7 +279,7 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 //				memDataset.commit();
 //				memDataset.end();
 			}
-			
+			return new ParsedSentence(out.toString());
 		}
 		
 		/**
@@ -275,12 +290,11 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 			- update filename
 		 * 			- update script
 		 * 			- number of iterations
-		 * @return
-		 * 			List of pairs containing Execution info on each update:
-		 * 			- total no. of iterations
-		 * 			- total time
+		 * @param updateRequests
+		 * 			The parsed update scripts, in the same order as <code>updates</code>.
+		 * 			Iterations, time and changed triples of each update are recorded in its {@link UpdateMetrics}.
 		 */
-		private List<Pair<Integer, Long>> executeUpdates(List<Triple<String, String, String>> updates) { 
+		private void executeUpdates(List<Triple<String, String, String>> updates, List<UpdateRequest> updateRequests) { 
 
 			String sent = new String();
 			boolean graphsout = false;
@@ -314,28 +328,29 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 						e.printStackTrace();
 					}
 			}
-			List<Pair<Integer,Long> > result = new ArrayList<Pair<Integer,Long> >();
 			int upd_id = 1;
 			int iter_id = 1;
-			for(Triple<String, String, String> update : updates) {
+			// detects the fixpoint of iterated updates
+			GraphChangeTracker tracker = new GraphChangeTracker(memDataset.getDefaultModel().getGraph());
+			for(int u = 0; u < updates.size(); u++) {
+				Triple<String, String, String> update = updates.get(u);
+				UpdateRequest updateRequest = updateRequests.get(u);
 				iter_id = 1;
-				Long startTime = System.currentTimeMillis();
+				long startTime = System.nanoTime();
+				long added = tracker.getAdded(), removed = tracker.getRemoved();
 				Model defaultModel = memDataset.getDefaultModel();
-				ChangedListener cL = new ChangedListener();
-				defaultModel.register(cL);
-				String oldModel = "";
 				int frq = MAXITERATE, v = 0;
 				boolean change = true;
 				try {
 					frq = Integer.parseInt(update.getRight());
 				} catch (NumberFormatException e) {
-					if (!"*".equals(update.getRight()))
+					if (!"*".equals(update.getRight())) {
+						tracker.close();
 						throw e;
+					}
 				}
 				while(v < frq && change) {
 					try {
-						UpdateRequest updateRequest;
-						updateRequest = UpdateFactory.create(update.getMiddle());
 						if (graphsout || triplesout) { //execute Update-block step by step and output intermediate results
 							int step = 1;
 							Model dM = memDataset.getDefaultModel();
@@ -374,26 +389,18 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 						e.printStackTrace();
 					}
 					
-					
-					if (oldModel.isEmpty()) {
-						change = cL.hasChanged();
-						LOG.trace("cl.hasChanged(): "+change);
-					} else {
-						change = !defaultModel.toString().equals(oldModel);
-						oldModel = "";
-					}
-					if (CHECKINTERVAL.contains(v))
-						oldModel = defaultModel.toString();
+					change = tracker.hasChanged();
+					LOG.trace("tracker.hasChanged(): "+change);
 					v++;
 					iter_id++;
 				}
 				if (v == MAXITERATE)
 					LOG.warn("Warning: MAXITERATE reached for " + update.getLeft() + ".");
-				result.add(new ImmutablePair<Integer, Long>(v, System.currentTimeMillis() - startTime));
-				defaultModel.unregister(cL);
+				updateMetrics.get(u).record(System.nanoTime() - startTime, v,
+						tracker.getAdded() - added, tracker.getRemoved() - removed);
 				upd_id++;
 			}			
-			return result;
+			tracker.close();
 		}
 		
 		/**
@@ -490,7 +497,7 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	 * 				MEM: fully independent in-memory datasets per thread 
 	 * 						(fastest, no transactions, high RAM usage, no HDD)
 	 * 				TXN: single transactional in-memory dataset for all threads
-	 * 						(in development, medium speed and RAM, no HDD)
+	 * 						(in development, currently the same as MEM)
 	 * 				TDB2: single transactional TDB2-database for all threads
 	 * 						(in development, slow-medium speed, low RAM usage, high HDD usage)
 	 * 				default: MEM
@@ -504,16 +511,13 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		if (type.equals("TDB2")) {
 			//TODO
 			dataset = DatasetFactory.create();//TDB
-		} else if (type.equals("TXN")) {
-			dataset = DatasetFactory.createTxnMem();
 		} else {
-			dataset = DatasetFactory.createTxnMem();
+			// links the read-only external models, which need neither copies nor transactions, see loadGraph()
+			dataset = DatasetFactory.createGeneral();
 		}
 //		memAccessor = DatasetAccessorFactory.create(memDataset);
 
 		setThreads(threads);
-
-		running = false;
 	}
 
 	public void setThreads(int threads) {
@@ -523,6 +527,21 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		return threads;
 	}
 
+	/**
+	 * Limits the number of sentences in flight, i.e. handed over to the threads but not yet written.
+	 * Reading of further input is suspended until the oldest sentence is written, so that a single 
+	 * slow sentence does not cause the output buffer to grow unbounded.
+	 * @param maxInFlight
+	 * 				Maximum amount of sentences in flight.
+	 * 				default: maxInFlight = 4 * threads
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
 	public String[] getUpdateNames() {
 		return updates.stream().map(t -> t.getLeft()).toArray(String[]::new);
 	}
@@ -627,9 +646,62 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		return prefixDeduplication;
 	}
 
+	OutputFormat getOutputFormat() {
+		return outputFormat;
+	}
+
+	/**
+	 * @param outputFormat
+	 * 			the RDF serialization of the updated sentences (default: pretty Turtle)
+	 */
+	void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+
+	/**
+	 * Activates the store mode: all updated sentences are also added to a TDB2 dataset on disk, one named graph per
+	 * sentence, so that the corpus can be queried as a whole after streaming, see {@link SentenceStore}.
+	 * @param dir
+	 * 			folder of the TDB2 dataset, created if it does not exist
+	 * @throws IOException
+	 */
+	public void activateStore(String dir) throws IOException {
+		store = new SentenceStore(dir);
+	}
+	SentenceStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Activates the metrics report: the statistics of each update, as also published via JMX, are written to a file
+	 * periodically while streaming and once more at the end, see {@link UpdateMetrics}.
+	 * @param file
+	 * 			CSV if the name ends with <code>.csv</code>, JSON otherwise
+	 * @param seconds
+	 * 			the interval between reports, no periodic reports if 0 or less
+	 */
+	public void activateMetricsReport(String file, int seconds) {
+		metricsReport = new File(file);
+		metricsInterval = seconds;
+	}
+	File getMetricsReport() {
+		return metricsReport;
+	}
+	int getMetricsInterval() {
+		return metricsInterval;
+	}
+	/**
+	 * @return the statistics of each update in the last call of processSentenceStream(), in the order of the updates
+	 */
+	List<UpdateMetrics> getUpdateMetrics() {
+		return new ArrayList<UpdateMetrics>(updateMetrics);
+	}
+
 	/**
 	 * Load external RDF file into a named graph of the local dataset. 
 	 * This graph is permanent for the runtime and is accessed read-only by all threads.
+	 * It is loaded once and shared, rather than copied per thread, and it is frozen: an update that modifies it fails
+	 * for the sentence at hand. Loading several files into the same graph merges them.
 	 * The default graph of the local dataset is reserved for updating nif:Sentences and 
 	 * can not be defined here.
 	 * @param url
@@ -650,25 +722,41 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		}
 		Model m = ModelFactory.createDefaultModel();
 		try {
+			if (dataset.containsNamedModel(graph.toString()))
+				m.add(dataset.getNamedModel(graph.toString()));
 			m.read(readInURI(url));
-			dataset.addNamedModel(graph.toString(), m);
+			// all triples are indexed as they are added, after that, concurrent reads do not change the graph
+			dataset.addNamedModel(graph.toString(), ModelFactory.createModelForGraph(new GraphReadOnly(m.getGraph())));
 		} catch (IOException ex) {
 			LOG.error("Exception while reading " + url + " into " + graph);
 			throw ex;
 		}
 		LOG.info("done...");
 	}
+	/**
+	 * Share the external models of another updater, instead of loading them once more, see {@link ShardedPipeline}.
+	 */
+	void shareGraphs(CoNLLRDFUpdater source) {
+		Iterator<String> names = source.dataset.listNames();
+		while (names.hasNext()) {
+			String name = names.next();
+			dataset.addNamedModel(name, source.dataset.getNamedModel(name));
+		}
+	}
 	public boolean hasGraph(String name) {
 		return dataset.containsNamedModel(name);
 	}
+	/**
+	 * @return a read-only view of an external model
+	 */
 	public Model getGraph(String name) {
-		//TODO return a copy instead of a reference
 		return dataset.getNamedModel(name);
 	}
 
 	/**
 	 * Define a set of updates to be executed for each sentence processed by this CoNLLRDFUpdater.
 	 * Existing updates will be overwritten by calling this function.
+	 * Each script is parsed only once, here, and the parsed requests are shared by all threads.
 	 * @param updatesRaw
 	 * 			The new set of updates as a List of String Triples. Each Triple has the following form:
 	 * 			<Name of Update>, <update script>OR<path to script>, <iterations>
@@ -676,7 +764,9 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	 */
 	public void parseUpdates(List<Triple<String, String, String>> updatesRaw) throws IOException, ParseException {
 		updates.clear();
+		updateRequests.clear();
 		final List<Triple<String, String, String>> updatesOut = new ArrayList<Triple<String, String, String>>(updatesRaw.size());
+		final List<UpdateRequest> updateRequestsOut = new ArrayList<UpdateRequest>(updatesRaw.size());
 
 		int updateNo = 0;
 		for(Triple<String, String, String> update: updatesRaw) {
@@ -727,9 +817,9 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 				LOG.debug("StringReader ok");
 			}
 
+			UpdateRequest updateRequest;
 			try {
-				@SuppressWarnings("unused")
-				UpdateRequest qexec = UpdateFactory.create(updateScript);
+				updateRequest = UpdateFactory.create(updateScript);
 			} catch (QueryParseException e) {
 				LOG.error("Failed to parse argument as sparql");
 				// if update looks like a file, but can't be found
@@ -741,9 +831,11 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 				}
 			}
 			updatesOut.add(new ImmutableTriple<String, String, String> (updateName, updateScript, updateIterations));
+			updateRequestsOut.add(updateRequest);
 			LOG.debug("Update parsed ok");
 		}
 		updates.addAll(Collections.synchronizedList(updatesOut));
+		updateRequests.addAll(updateRequestsOut);
 	}
 
 	/**
@@ -797,90 +889,54 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	@Override
 	protected void processSentenceStream() throws IOException {
 		initThreads();
-		running = true;
+		List<ObjectName> mbeans = UpdateMetrics.register(updateMetrics, instance);
+		ScheduledExecutorService reporter = null;
+		if (metricsReport != null && metricsInterval > 0) {
+			reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "metrics-report");
+				t.setDaemon(true);
+				return t;
+			});
+			reporter.scheduleAtFixedRate(this::writeMetricsReport, metricsInterval, metricsInterval, TimeUnit.SECONDS);
+		}
 
 		
-		String prefixCache = new String();
-		String line;
-		String lastLine ="";
-		String buffer="";
-//		List<Pair<Integer,Long> > dRTs = new ArrayList<Pair<Integer,Long> >(); // iterations and execution time of each update in seconds
-		while((line = getInputStream().readLine())!=null) {
-			line=line.replaceAll("[\t ]+"," ").trim();
-
-			if(!buffer.trim().equals("") && (line.startsWith("@") || line.startsWith("#")) && !lastLine.startsWith("@") && !lastLine.startsWith("#")) { //!buffer.matches("@[^\n]*\n?$")) {
-				// If the buffer is not empty and the current line starts with @ or #
-				// and the previous line did not start with @ or #
-				// check if the buffer contains a ttl prefix
-				if (buffer.contains("@prefix"))  {
-					prefixCache = new String();
-					for (String buffLine:buffer.split("\n")) {
-						if (buffLine.trim().startsWith("@prefix")) {
-							prefixCache += buffLine+"\n";
-						}
-					}
-				} else {
-					buffer = prefixCache+buffer;
-				}
+		// splits the input into sentences (with prefixes if necessary), unless sentences are handed over directly
+		TurtleSentenceFramer framer = (getSentenceInput() == null) ? new TurtleSentenceFramer(getInputStream()) : null;
+		ParsedSentence sentence = nextSentence(framer);
+		ParsedSentence next;
+		while(sentence != null && (next = nextSentence(framer)) != null) {
+			defaultOutputSentences(sentence);
 
-				// GRAPH OUTPUT determine first sentence's id, if none were specified
-				if ((graphOutputDir != null) && (graphOutputSentences.isEmpty())) {
-					String sentID = readFirstSentenceID(buffer);
-					graphOutputSentences.add(sentID);
-					LOG.debug("Graph Output defaults to first sentence: " + sentID);
-				}
-				// TRIPLES OUTPUT determine first sentence's id, if none were specified
-				if ((triplesOutputDir != null) && (triplesOutputSentences.isEmpty())) {
-					String sentID = readFirstSentenceID(buffer);
-					triplesOutputSentences.add(sentID);
-					LOG.debug("Triples Output defaults to first sentence: " + sentID);
-				}
-
-				//lookahead
-				//add ALL sentences to sentBufferLookahead
-				sentBufferLookahead.add(buffer);
-				if (sentBufferLookahead.size() > lookahead_snts) {
-					//READY TO PROCESS 
-					// remove first sentence from buffer and process it.
-					// !!if lookahead = 0 then only current buffer is in sentBufferLookahead!!
-					executeThread(sentBufferLookahead.remove(0));
-				}		
-				
-				//lookback
-				//needs to consider lookahead buffer. The full buffer size needs to be lookahead + lookback.
-				if (lookback_snts > 0) {
-					while (sentBufferLookback.size() >= lookback_snts + sentBufferLookahead.size()) sentBufferLookback.remove(0);
-					sentBufferLookback.add(buffer);
-				}
-
-				flushOutputBuffer(getOutputStream());
-				buffer="";
+			//lookahead
+			//add ALL sentences to sentBufferLookahead
+			sentBufferLookahead.add(sentence);
+			if (sentBufferLookahead.size() > lookahead_snts) {
+				//READY TO PROCESS 
+				// remove first sentence from buffer and process it.
+				// !!if lookahead = 0 then only current buffer is in sentBufferLookahead!!
+				executeThread(sentBufferLookahead.remove(0));
+			}		
+			
+			//lookback
+			//needs to consider lookahead buffer. The full buffer size needs to be lookahead + lookback.
+			if (lookback_snts > 0) {
+				while (sentBufferLookback.size() >= lookback_snts + sentBufferLookahead.size()) sentBufferLookback.remove(0);
+				sentBufferLookback.add(sentence);
 			}
-			buffer=buffer+line+"\n";
-			lastLine=line;
-		}
 
-		// FINAL SENTENCE (with prefixes if necessary)
-		if (!buffer.contains("@prefix"))  {
-			buffer = prefixCache+buffer;
+			flushOutputBuffer(false);
+			sentence = next;
 		}
 
-		// To address the edge case of no comments or prefixes occuring after the first sentence of a stream
-		// GRAPH OUTPUT determine first sentence's id, if none were specified
-		if ((graphOutputDir != null) && (graphOutputSentences.isEmpty())) {
-			String sentID = readFirstSentenceID(buffer);
-			graphOutputSentences.add(sentID);
-			LOG.debug("Graph Output defaults to first sentence: " + sentID);
-		}
-		// TRIPLES OUTPUT determine first sentence's id, if none were specified
-		if ((triplesOutputDir != null) && (triplesOutputSentences.isEmpty())) {
-			String sentID = readFirstSentenceID(buffer);
-			triplesOutputSentences.add(sentID);
-			LOG.debug("Triples Output defaults to first sentence: " + sentID);
+		// FINAL SENTENCE (none if the SentencePipe was empty)
+		if (sentence != null) {
+			// To address the edge case of no comments or prefixes occuring after the first sentence of a stream
+			defaultOutputSentences(sentence);
+			sentBufferLookahead.add(sentence);
 		}
 
 		// LOOKAHEAD work down remaining buffer
-		sentBufferLookahead.add(buffer);
 		while (sentBufferLookahead.size()>0) {
 			executeThread(sentBufferLookahead.remove(0));
 			if (lookback_snts > 0) {
@@ -889,63 +945,106 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		}
 			
 		
-		//wait for threads to finish work
-		boolean threadsRunning = true;
-		while(threadsRunning) {
-			threadsRunning = false;
-			for (UpdateThread t:updateThreads) {
-				if (t != null)
-				if (t.getState() == Thread.State.RUNNABLE || t.getState() == Thread.State.BLOCKED) {
-					threadsRunning = true;
-				}
-			}
-		}
+		//wait for threads to finish work: blocks on the pending sentences in output order
+		flushOutputBuffer(true);
 		//terminate all threads
-		running = false;
+		for (int i = 0; i < updateThreads.size(); i++) {
+			putTask(SHUTDOWN);
+		}
 		for (UpdateThread t:updateThreads) {
-			if (t != null)
-			if(t.getState() == Thread.State.NEW) {
-				t.start(); //in case of spontaneous resurrection, new threads should not have any work to do at this point
-			} else if (!(t.getState() == Thread.State.TERMINATED)) {
-				synchronized(t) {
-					t.notify();
-				}
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				LOG.warn("Interrupted while waiting for "+t.getName()+" to terminate.");
+				Thread.currentThread().interrupt();
 			}
 		}
 		
-		//sum up statistics
-		List<Pair<Integer,Long>> dRTs_sum = new ArrayList<Pair<Integer,Long> >();
-		for (List<Pair<Integer,Long>> dRT_thread:dRTs) {
-			if (dRTs_sum.isEmpty())
-				dRTs_sum.addAll(dRT_thread);
-			else
-				for (int x = 0; x < dRT_thread.size(); ++x)
-					dRTs_sum.set(x, new ImmutablePair<Integer, Long>(
-							dRTs_sum.get(x).getKey() + dRT_thread.get(x).getKey(),
-							dRTs_sum.get(x).getValue() + dRT_thread.get(x).getValue()));
-			
+		// STORE write the last batch
+		if (store != null) {
+			store.flush();
+			LOG.info("Stored " + store.size() + " sentences");
 		}
-		if (!dRTs_sum.isEmpty())
-			LOG.debug("Done - List of iterations and execution times for the updates done (in given order):\n\t\t" + dRTs_sum.toString());
 
-		//final flush
-		flushOutputBuffer(getOutputStream());
-		getOutputStream().close();
+		//report statistics
+		if (reporter != null)
+			reporter.shutdownNow();
+		if (metricsReport != null)
+			UpdateMetrics.writeReport(updateMetrics, metricsReport);
+		UpdateMetrics.unregister(mbeans);
+		if (!updateMetrics.isEmpty())
+			LOG.debug("Done - Statistics of the updates done (in given order):\n\t\t" + updateMetrics.toString());
+
+		if (getSentenceOutput() != null)
+			getSentenceOutput().close();
+		else
+			getOutputStream().close();
 		
 	}
 
 	/**
-	 * Retrieve the first "Sentence ID" (nif-core#Sentence -property) from the buffer and return it
+	 * Periodic metrics report, failures are logged but do not stop the stream.
+	 */
+	private void writeMetricsReport() {
+		try {
+			UpdateMetrics.writeReport(updateMetrics, metricsReport);
+		} catch (IOException e) {
+			LOG.warn("Failed to write metrics report to " + metricsReport + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Read the next sentence, from the SentencePipe if there is one, or else from the input stream.
+	 * @return the sentence, or null at the end of the input
+	 */
+	private ParsedSentence nextSentence(TurtleSentenceFramer framer) throws IOException {
+		if (getSentenceInput() != null)
+			return getSentenceInput().take();
+		String buffer = framer.next();
+		return (buffer == null) ? null : new ParsedSentence(buffer);
+	}
+
+	/**
+	 * GRAPH OUTPUT and TRIPLES OUTPUT default to the first sentence's id, if none were specified.
+	 * A sentence without an id, e.g. the comments after the last sentence of a CoNLLStreamExtractor, is skipped.
+	 */
+	private void defaultOutputSentences(ParsedSentence sentence) {
+		if ((graphOutputDir == null || !graphOutputSentences.isEmpty())
+				&& (triplesOutputDir == null || !triplesOutputSentences.isEmpty()))
+			return;
+		String sentID = readFirstSentenceID(sentence);
+		if (sentID == null)
+			return;
+		if ((graphOutputDir != null) && (graphOutputSentences.isEmpty())) {
+			graphOutputSentences.add(sentID);
+			LOG.debug("Graph Output defaults to first sentence: " + sentID);
+		}
+		if ((triplesOutputDir != null) && (triplesOutputSentences.isEmpty())) {
+			triplesOutputSentences.add(sentID);
+			LOG.debug("Triples Output defaults to first sentence: " + sentID);
+		}
+	}
+
+	/**
+	 * Retrieve the first "Sentence ID" (nif-core#Sentence -property) from the sentence and return it
+	 * @return null if the sentence contains no nif-core#Sentence
 	 */
-	private String readFirstSentenceID(String buffer) {
+	private String readFirstSentenceID(ParsedSentence sentence) {
 		Model m = ModelFactory.createDefaultModel();
-		String sentID = m.read(new StringReader(buffer),null, "TTL").listSubjectsWithProperty(
+		sentence.addTo(m);
+		ResIterator sentences = m.listSubjectsWithProperty(
 				m.getProperty("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"), 
 				m.getProperty("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#Sentence")
-			).next().getLocalName();
-		return sentID;
+			);
+		return sentences.hasNext() ? sentences.next().getLocalName() : null;
 	}
 
+	/**
+	 * Starts a fixed pool of UpdateThreads, all working off a single bounded work queue.
+	 * The queue holds at most as many pending sentences as there are threads,
+	 * submitting further sentences blocks the reading thread until a worker becomes available.
+	 * Results are collected in a reorder buffer of maxInFlight slots.
+	 */
 	private void initThreads() {
 		// Use the processor cores available to runtime (but at least 1) as thread count, if an invalid thread count is provided.
 		if (threads <= 0) {
@@ -953,49 +1052,85 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 			LOG.info("Falling back to default thread maximum.");
 		}
 		LOG.info("Executing on "+threads+" processor cores, max.");
+		if (maxInFlight <= 0) {
+			maxInFlight = 4 * threads;
+		}
+		sentBufferOut = new SentenceReorderBuffer<ParsedSentence>(maxInFlight);
+		prefixCacheOut = new String();
+		workQueue = new ArrayBlockingQueue<Pair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long>>(threads);
+		updateThreads.clear();
+		updateMetrics.clear();
+		for (int u = 0; u < updates.size(); u++) {
+			updateMetrics.add(new UpdateMetrics(updates.get(u).getLeft(), u + 1));
+		}
 		for (int i = 0; i < threads; i++) {
-			updateThreads.add(null);
-			dataset.addNamedModel("http://thread"+i, ModelFactory.createDefaultModel());
-			sentBufferThreads.add(new ImmutableTriple<List<String>, String, List<String>>(
-					new ArrayList<String>(), new String(), new ArrayList<String>()));
-			dRTs.add(Collections.synchronizedList(new ArrayList<Pair<Integer,Long> >()));
+			UpdateThread t = new UpdateThread(this, i);
+			t.setDaemon(true);
+			updateThreads.add(t);
+			t.start();
 		}
 	}
 
-	private synchronized void flushOutputBuffer(PrintStream out) {
+	/**
+	 * Writes all sentences at the head of the output buffer that have already been processed.
+	 * @param wait
+	 * 			if true, block until all pending sentences are processed and written.
+	 * @throws IOException
+	 */
+	private void flushOutputBuffer(boolean wait) throws IOException {
 		LOG.trace("OutBufferSize: "+sentBufferOut.size());
 
-		String prefixCacheOut = new String();
+		ParsedSentence sentence;
+		while ((sentence = wait ? sentBufferOut.take() : sentBufferOut.poll()) != null) {
+			emitSentence(sentence);
+		}
+	}
 
-		while (!sentBufferOut.isEmpty()) {
-			if (sentBufferOut.get(0).matches("\\d+")) break;
-			
-			String outString = new String();
-			if (prefixDeduplication) {
-				String prefixCacheTMP = new String();
-				for (String buffLine:sentBufferOut.remove(0).split("\n")) {
-					if (buffLine.trim().startsWith("@prefix")) {
-						prefixCacheTMP += buffLine+"\n";
-					} else if (!buffLine.trim().isEmpty()) {
-							outString += buffLine+"\n";
-					}
-				}
-				if (!prefixCacheTMP.equals(prefixCacheOut)) {
-					prefixCacheOut = prefixCacheTMP;
-					outString = prefixCacheTMP + outString + "\n";
+	/**
+	 * Hands a processed sentence over to the next component, or prints it to the output stream.
+	 */
+	private void emitSentence(ParsedSentence sentence) throws IOException {
+		if (getSentenceOutput() != null)
+			getSentenceOutput().put(sentence);
+		else
+			printSentence(getOutputStream(), sentence.getText());
+	}
+
+	private void printSentence(PrintStream out, String sentence) {
+		String outString = new String();
+		if (prefixDeduplication) {
+			StringBuilder prefixCacheTMP = new StringBuilder();
+			StringBuilder outBuilder = new StringBuilder(sentence.length());
+			for (String buffLine:sentence.split("\n")) {
+				if (buffLine.trim().startsWith("@prefix")) {
+					prefixCacheTMP.append(buffLine).append("\n");
+				} else if (!buffLine.trim().isEmpty()) {
+					outBuilder.append(buffLine).append("\n");
 				}
-			} else {
-				outString = sentBufferOut.remove(0);
 			}
-			if (!outString.endsWith("\n\n")) outString += "\n";
-			out.print(outString);
+			if (!prefixCacheOut.contentEquals(prefixCacheTMP)) {
+				prefixCacheOut = prefixCacheTMP.toString();
+				outBuilder.insert(0, prefixCacheOut).append("\n");
+			}
+			outString = outBuilder.toString();
+		} else {
+			outString = sentence;
 		}
+		if (!outString.endsWith("\n\n")) outString += "\n";
+		out.print(outString);
 	}
 
-	private void executeThread(String buffer) {
-		MutableTriple<List<String>, String, List<String>>sentBufferThread =
-				new MutableTriple<List<String>, String, List<String>>(
-				new ArrayList<String>(), new String(), new ArrayList<String>());
+	/**
+	 * Hands a sentence and its context over to the UpdateThreads.
+	 * Blocks while the work queue or the output buffer is full.
+	 * @param buffer
+	 * 			the current sentence
+	 * @throws IOException
+	 */
+	private void executeThread(ParsedSentence buffer) throws IOException {
+		MutableTriple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>sentBufferThread =
+				new MutableTriple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>(
+				new ArrayList<ParsedSentence>(), null, new ArrayList<ParsedSentence>());
 		//sentBufferLookback only needs to be filled up to the current sentence.
 		//All other sentences are for further lookahead iterations
 //		sentBufferThread.getLeft().addAll(sentBufferLookback);
@@ -1004,59 +1139,40 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		}
 		sentBufferThread.setMiddle(buffer);
 		sentBufferThread.getRight().addAll(sentBufferLookahead);
-		int i = 0;
-
-		while(i < updateThreads.size()) {
-			LOG.trace("ThreadState " + i + ": "+((updateThreads.get(i)!=null)?updateThreads.get(i).getState():"null"));
-			if (updateThreads.get(i) == null) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.set(i, new UpdateThread(this, i));
-				updateThreads.get(i).start();
-				LOG.trace("restart "+i);
-				LOG.trace("OutBufferSize: "+sentBufferOut.size());
-				break;
-			} else 
-				if (updateThreads.get(i).getState() == Thread.State.WAITING) {
-				synchronized(updateThreads.get(i)) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.get(i).notify();
-				}
-				LOG.trace("wake up "+i);
-				break;
-			} else 
-				if (updateThreads.get(i).getState() == Thread.State.NEW) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.get(i).start();
-				LOG.trace("start "+i);
-				LOG.trace("OutBufferSize: "+sentBufferOut.size());
-				break;
-			} else 
-				if (updateThreads.get(i).getState() == Thread.State.TERMINATED) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.set(i, new UpdateThread(this, i));
-				updateThreads.get(i).start();
-				LOG.trace("restart "+i);
-				LOG.trace("OutBufferSize: "+sentBufferOut.size());
-				break;
-			}
-			
-			i++;
-			if (i >= updateThreads.size()) {
-				try {
-					synchronized (this) {
-//						System.err.println("Updater waiting");
-						wait(20);
-					}
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				} finally {
-					i = 0;
-				}
-			}
+
+		// backpressure: while the output buffer is full, wait for the oldest sentence and write it
+		while (sentBufferOut.isFull()) {
+			emitSentence(sentBufferOut.take());
+		}
+		long seq = sentBufferOut.reserve(); //add sentence to the end of the output queue.
+		putTask(new ImmutablePair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long>(sentBufferThread, seq));
+		LOG.trace("OutBufferSize: "+sentBufferOut.size());
+	}
+
+	@Override
+	boolean acceptsSentenceInput() {
+		return true;
+	}
+
+	@Override
+	boolean producesSentenceOutput() {
+		return true;
+	}
+
+	@Override
+	boolean supportsSharding() {
+		// no context across sentences, no state written once for the entire stream
+		return lookahead_snts == 0 && lookback_snts == 0 && store == null && metricsReport == null
+				&& (graphOutputDir == null || !graphOutputSentences.isEmpty())
+				&& (triplesOutputDir == null || !triplesOutputSentences.isEmpty());
+	}
+
+	private void putTask(Pair<Triple<List<ParsedSentence>, ParsedSentence, List<ParsedSentence>>, Long> task) throws IOException {
+		try {
+			workQueue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for UpdateThreads", e);
 		}
 	}
 
@@ -1,5 +1,6 @@
 package org.acoli.conll.rdf;
 
+import static org.acoli.conll.rdf.CoNLLRDFCommandLine.parseShard;
 import static org.acoli.conll.rdf.CoNLLRDFCommandLine.parseUpdate;
 import java.io.IOException;
 import java.net.URI;
@@ -20,18 +21,39 @@ public class CoNLLRDFUpdaterFactory {
 	public CoNLLRDFUpdater buildFromCLI(String[] args) throws IOException, ParseException {
 		CoNLLRDFUpdater updater = new CoNLLRDFUpdater();
 		final CommandLine cmd = new CoNLLRDFCommandLine(
-				"CoNLLRDFUpdater [-loglevel LEVEL] [-threads T] [-lookahead N] [-lookback N] [-custom [-model URI [GRAPH]]* [-graphsout DIR [SENT_ID ...]] [-triplesout DIR [SENT_ID ...]] -updates [UPDATE ...]]",
+				"CoNLLRDFUpdater [-loglevel LEVEL] [-in FILE [-sentences ID ... | -shard I N]] [-threads T] [-maxInFlight N] [-lookahead N] [-lookback N] [-output FORMAT] [-gzip] [-store DIR] [-metrics FILE [SECONDS]] [-custom [-model URI [GRAPH]]* [-graphsout DIR [SENT_ID ...]] [-triplesout DIR [SENT_ID ...]] -updates [UPDATE ...]]",
 				"read TTL from stdin => update CoNLL-RDF", new Option[] {
 						// Define cli options in the correct order for the help-message
+						Option.builder("in").hasArg().argName("file")
+								.desc("read TTL from FILE rather than stdin").build(),
+						Option.builder("sentences").hasArgs().argName("id").desc(
+								"read only the sentences with these IDs (s1_0), # sent_ids, numbers or ranges of numbers (1-10) of FILE, located by its index FILE.idx")
+								.build(),
+						Option.builder("shard").numberOfArgs(2).argName("i n").desc(
+								"read only shard I of N of FILE, cut at sentence boundaries into N byte ranges of about the same size")
+								.build(),
 						Option.builder("loglevel").hasArg().desc("set log level to LEVEL").argName("level").build(),
 						Option.builder("threads").hasArg()
 								.desc("use T threads max\ndefault: half of available logical processor cores")
 								.type(Number.class).build(),
+						Option.builder("maxInFlight").hasArg()
+								.desc("keep at most N sentences in process or waiting for output\ndefault: 4 times T")
+								.type(Number.class).build(),
 						Option.builder("lookahead").hasArg().desc("cache N further sentences in lookahead graph")
 								.type(Number.class).build(),
 						Option.builder("lookback").hasArg().desc("cache N preceeding sentences in lookback graph")
 								.type(Number.class).build(),
 						new Option("prefixDeduplication", false, "Remove duplicates of TTL-Prefixes"),
+						Option.builder("output").hasArg().argName("format")
+								.desc("write turtle (default), ntriples, nquads (one graph per sentence) or turtle-blocks (streamed)")
+								.build(),
+						new Option("gzip", false, "write gzip-compressed output, compressed in parallel blocks"),
+						Option.builder("store").hasArg().argName("dir")
+								.desc("also add the updated sentences to the TDB2 dataset in DIR, one named graph per sentence")
+								.build(),
+						Option.builder("metrics").hasArgs().argName("file [seconds]").desc(
+								"write per-update timing and iteration statistics to FILE, as CSV if it ends with .csv, as JSON otherwise\nevery SECONDS and at the end\ndefault: 60")
+								.build(),
 						Option.builder("custom").hasArg(false).desc("use custom update scripts")
 								./* required(). */build(),
 						Option.builder("model").hasArgs().desc("to load additional Models into local graph").build(),
@@ -44,9 +66,24 @@ public class CoNLLRDFUpdaterFactory {
 								.desc("followed by SPARQL scripts paired with {iterations/u}").build() },
 				CoNLLRDFUpdater.LOG).parseArgs(args);
 
+		if (cmd.hasOption("sentences") && !cmd.hasOption("in")) {
+			throw new ParseException("-sentences requires -in FILE");
+		}
+		if (cmd.hasOption("shard") && (!cmd.hasOption("in") || cmd.hasOption("sentences"))) {
+			throw new ParseException("-shard requires -in FILE and cannot be combined with -sentences");
+		}
+		if (cmd.hasOption("shard")) {
+			Pair<Integer, Integer> shard = parseShard(cmd.getOptionValues("shard"));
+			updater.setInputStream(SentenceIndex.openShard(cmd.getOptionValue("in"), shard.getLeft(), shard.getRight()));
+		} else if (cmd.hasOption("in")) {
+			updater.setInputStream(SentenceIndex.openInput(cmd.getOptionValue("in"), cmd.getOptionValues("sentences")));
+		}
 		if (cmd.hasOption("threads")) {
 			updater.setThreads(((Number) cmd.getParsedOptionValue("threads")).intValue());
 		}
+		if (cmd.hasOption("maxInFlight")) {
+			updater.setMaxInFlight(((Number) cmd.getParsedOptionValue("maxInFlight")).intValue());
+		}
 		if (cmd.hasOption("lookahead")) {
 			updater.activateLookahead(((Number) cmd.getParsedOptionValue("lookahead")).intValue());
 		}
@@ -56,6 +93,31 @@ public class CoNLLRDFUpdaterFactory {
 		if (cmd.hasOption("prefixDeduplication")) {
 			updater.activatePrefixDeduplication();
 		}
+		if (cmd.hasOption("output")) {
+			updater.setOutputFormat(OutputFormat.forOption(cmd.getOptionValue("output")));
+		}
+		if (cmd.hasOption("gzip")) {
+			updater.setOutputStream(CompressedStreams.gzipStdout());
+		}
+		if (cmd.hasOption("store")) {
+			updater.activateStore(cmd.getOptionValue("store"));
+		}
+		if (cmd.hasOption("metrics")) {
+			String[] metricsArgs = cmd.getOptionValues("metrics");
+			if (metricsArgs.length > 2) {
+				throw new ParseException("-metrics takes a file and an optional interval in seconds, but got "
+						+ Arrays.asList(metricsArgs));
+			}
+			int seconds = 60;
+			if (metricsArgs.length == 2) {
+				try {
+					seconds = Integer.parseInt(metricsArgs[1]);
+				} catch (NumberFormatException e) {
+					throw new ParseException("-metrics interval is not a number of seconds: " + metricsArgs[1]);
+				}
+			}
+			updater.activateMetricsReport(metricsArgs[0], seconds);
+		}
 		// READ GRAPHSOUT PARAMETERS
 		if (cmd.hasOption("graphsout")) {
 			String[] graphsoutArgs = cmd.getOptionValues("graphsout");
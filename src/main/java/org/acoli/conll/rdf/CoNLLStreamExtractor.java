@@ -18,8 +18,15 @@ package org.acoli.conll.rdf;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import org.apache.jena.rdf.listeners.ChangedListener;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.update.*;
 import org.apache.log4j.Logger;
@@ -27,6 +34,8 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jena.query.*;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
 
 /** extracts RDF data from CoNLL files, transforms the result using SPARQL UPDATE queries,
  * 	optionally followed by SPARQL SELECT to produce TSV output<br>
@@ -37,11 +46,92 @@ import org.apache.jena.query.*;
  */
 public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 	private static Logger LOG = Logger.getLogger(CoNLLStreamExtractor.class.getName());
+	private static final String CONLL = "http://ufal.mff.cuni.cz/conll2009-st/task-description.html#";
+	private static final Node NIF_SENTENCE = NodeFactory.createURI("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#Sentence");
+	// a comment such as "# sent_id = 1" or "# text = ...", without its #
+	private static final Pattern TYPED_COMMENT = Pattern.compile("\\s*(\\S+)\\s*=(.*)");
 	private String baseURI;
 	private List<String> columns = new ArrayList<String>();
 	private boolean readColumnComment = false;
+	// the ID of the first sentence of the input, greater than 1 for a part of a larger input
+	private int firstSentence = 1;
+	// the file the input stream reads, if any, to be read memory-mapped instead
+	private File inputFile = null;
+	// the only sentences to read from the input file, null for all
+	private List<String> sentences = null;
 	private String select = null;
+	private boolean typedComments = false;
+	private OutputFormat outputFormat = OutputFormat.TURTLE;
 	List<Pair<String, String>> updates = new ArrayList<Pair<String, String>>();
+	// the same updates, parsed once on the first sentence and shared read-only by all ExtractorThreads
+	private List<Pair<UpdateRequest, String>> updateRequests = null;
+	// iterations and execution time of each update in seconds, summed up over all sentences
+	private final List<Pair<Integer,Long>> dRTs = new ArrayList<Pair<Integer,Long>>();
+
+	// for thread handling
+	private int threads = 1;
+	private final List<ExtractorThread> extractorThreads = new ArrayList<ExtractorThread>();
+	// Bounded work queue shared by all ExtractorThreads. Each task holds a sentence
+	// and the sequence number of its slot in sentBufferOut.
+	private BlockingQueue<Pair<SplitSentence, Long>> workQueue = null;
+	// Poison pill, tells an ExtractorThread to terminate once the queue has been worked down.
+	private static final Pair<SplitSentence, Long> SHUTDOWN = new ImmutablePair<SplitSentence, Long>(null, -1L);
+	// Buffer for emitting sentences in original order
+	private SentenceReorderBuffer<Pair<ParsedSentence, String>> sentBufferOut = null;
+
+	/**
+	 * A block of CoNLL as split from the input, with everything that depends on its position in the stream:
+	 * the sentence number and the comments preceding it.
+	 */
+	private static class SplitSentence {
+		final String buffer;
+		final int sent;
+		final List<String> comments;
+		final List<String> commentLines;
+
+		SplitSentence(String buffer, int sent, List<String> comments, List<String> commentLines) {
+			this.buffer = buffer;
+			this.sent = sent;
+			this.comments = new ArrayList<String>(comments);
+			this.commentLines = new ArrayList<String>(commentLines);
+		}
+	}
+
+	/**
+	 * Converts, updates and prints sentences taken from the work queue, each thread with its own CoNLL2RDF instance.
+	 * The results are handed back to the reading thread, which emits them in input order.
+	 */
+	private class ExtractorThread extends Thread {
+		private final CoNLL2RDF conll2rdf;
+
+		ExtractorThread(int id) throws IOException {
+			super("ExtractorThread-"+id);
+			conll2rdf = new CoNLL2RDF(baseURI, columns.toArray(new String[columns.size()]));
+		}
+
+		public void run() {
+			while (true) {
+				Pair<SplitSentence, Long> task;
+				try {
+					task = workQueue.take();
+				} catch (InterruptedException e) {
+					LOG.warn("Interrupted while waiting for work: "+getName());
+					return;
+				}
+				if (task == SHUTDOWN)
+					return;
+				try {
+					sentBufferOut.complete(task.getRight(), extract(conll2rdf, task.getLeft()));
+				} catch (Exception e) {
+					// rethrown by the reading thread, as if it had processed the sentence itself
+					sentBufferOut.fail(task.getRight(), e);
+				} catch (Error e) {
+					sentBufferOut.fail(task.getRight(), e);
+					throw e;
+				}
+			}
+		}
+	}
 
 	public String getBaseURI() {
 		return baseURI;
@@ -63,6 +153,41 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		readColumnComment = read;
 	}
 
+	/**
+	 * @param firstSentence
+	 * 				the number in the URI of the first sentence of the input, see {@link ShardedPipeline}
+	 */
+	void setFirstSentence(int firstSentence) {
+		this.firstSentence = firstSentence;
+	}
+
+	File getInputFile() {
+		return inputFile;
+	}
+
+	/**
+	 * @param inputFile
+	 * 				the file the input stream reads: unless it is compressed, the sentences are read from it
+	 * 				memory-mapped, see {@link MappedSentenceReader}. The input stream is still used to look for
+	 * 				the columns in the comments.
+	 */
+	void setInputFile(File inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	List<String> getSentences() {
+		return sentences;
+	}
+
+	/**
+	 * @param sentences
+	 * 				IDs, <code># sent_id</code>s, numbers or ranges of numbers of the only sentences to process, read from
+	 * 				the input file by their byte offsets, see {@link SentenceIndex}. Null for the entire input.
+	 */
+	void setSentences(List<String> sentences) {
+		this.sentences = sentences;
+	}
+
 	public String getSelect() {
 		return select;
 	}
@@ -71,6 +196,47 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		this.select = select;
 	}
 
+	public int getThreads() {
+		return threads;
+	}
+
+	public boolean isTypedComments() {
+		return typedComments;
+	}
+
+	/**
+	 * @param typedComments
+	 * 				add comments of the form <code>key = value</code>, such as <code>sent_id</code> and <code>text</code>
+	 * 				in CoNLL-U, as properties <code>conll:key</code> of the sentence, rather than joined with all
+	 * 				other comments into one rdfs:comment
+	 */
+	public void setTypedComments(boolean typedComments) {
+		this.typedComments = typedComments;
+	}
+
+	OutputFormat getOutputFormat() {
+		return outputFormat;
+	}
+
+	/**
+	 * @param outputFormat
+	 * 				the RDF serialization of the sentences, unless a SELECT is given (default: pretty Turtle)
+	 */
+	void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+
+	/**
+	 * Convert, update and print sentences on several threads. Output order and sentence IDs are the same as with
+	 * a single thread.
+	 * @param threads
+	 * 				number of threads, 1 processes all sentences on the reading thread (default),
+	 * 				0 or less uses as many threads as there are logical processor cores
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
 	public List<Pair<String, String>> getUpdates() {
 		return updates;
 	}
@@ -90,77 +256,277 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 			}
 		}
 		CoNLL2RDF conll2rdf = new CoNLL2RDF(baseURI, columns.toArray(new String[columns.size()]));
-		List<Pair<Integer,Long> > dRTs = new ArrayList<Pair<Integer,Long> >(); // iterations and execution time of each update in seconds
+		updateRequests = null; // parsed on the first sentence, then reused
+		dRTs.clear();
+		initThreads();
 		LOG.info("process input ..");
 		BufferedReader in = getInputStream();
+		MappedSentenceReader mapped = null;
+		SentenceIndex index = null;
+		int[] selected = null;
+		if (sentences != null) {
+			if (inputFile == null)
+				throw new IOException("Sentences can only be selected from an input file");
+			index = SentenceIndex.forFile(inputFile);
+			if (index.isRDF())
+				throw new IOException(inputFile + " is CoNLL-RDF rather than CoNLL");
+			selected = index.select(sentences);
+			in.close();
+		} else if (inputFile != null && MappedSentenceReader.canMap(inputFile)) {
+			LOG.debug("Reading " + inputFile + " memory-mapped");
+			mapped = new MappedSentenceReader(inputFile);
+			in.close();
+		}
 		OutputStreamWriter out = new OutputStreamWriter(getOutputStream());
-		String buffer = "";
+		StringBuilder buffer = new StringBuilder();
 		ArrayList<String> comments = new ArrayList<>();
-		for(String line = ""; line !=null; line=in.readLine()) {
-			if(line.contains("#")) {
-				out.write(line.replaceAll("^[^#]*#", "#") + "\n");
-				comments.add(line.replaceAll("^[^#]*#", ""));
+		List<String> commentLines = new ArrayList<>(); // printed or sent along with the next sentence
+		int sent = firstSentence; // sentence IDs are assigned in input order, before the sentences are handed out
+		// the entire input is read in one run, selected sentences in a run each, numbered as in the entire input
+		for (int run = 0; run < (selected == null ? 1 : selected.length); run++) {
+			BufferedReader slice = null;
+			if (selected != null) {
+				slice = new BufferedReader(new StringReader(index.read(selected[run])));
+				sent = selected[run];
 			}
-			line=line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)","").trim(); // in this way, we can also read sketch engine data and split at s and p elements
-			if(!(line.matches("^<[^>]*>$")))							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
-				if(line.equals("") && !buffer.trim().equals("")) {
-					Model m = conll2rdf.conll2model(new StringReader(buffer+"\n"));
-					if(m!=null) { // null if an error occurred
-						List<Pair<Integer,Long> > ret = update(m, updates);
-						if (dRTs.isEmpty())
-							dRTs = ret;
-						else
-							for (int x = 0; x < ret.size(); ++x)
-								dRTs.set(x, new ImmutablePair<Integer, Long>(dRTs.get(x).getKey() + ret.get(x).getKey(), dRTs.get(x).getValue() + ret.get(x).getValue()));
-						if (comments.size() > 0) {
-							m = injectSentenceComments(m, comments);
-							comments.clear();
-						}
-						print(m,select, out);
-					}
-					buffer="";
-				} else
-					buffer=buffer+line+"\n";
-		}
-		if(!buffer.trim().equals("")) {
-			Model m = conll2rdf.conll2model(new StringReader(buffer+"\n"));
-			List<Pair<Integer,Long> > ret = update(m, updates);
-			if (dRTs.isEmpty())
-				dRTs = ret;
-			else
-				for (int x = 0; x < ret.size(); ++x)
-					dRTs.set(x, new ImmutablePair<Integer, Long>(dRTs.get(x).getKey() + ret.get(x).getKey(), dRTs.get(x).getValue() + ret.get(x).getValue()));
-			if (comments.size() > 0) {
-				m = injectSentenceComments(m, comments);
+			for(String line = ""; line !=null; line=(slice != null) ? slice.readLine() : (mapped != null) ? mapped.readLine() : in.readLine()) {
+				int comment = line.indexOf('#');
+				if(comment >= 0) {
+					commentLines.add(line.substring(comment));
+					comments.add(line.substring(comment+1));
+				}
+				String normalized=Format2RDF.normalizeLine(line);
+				if(normalized != null)
+					if(normalized.equals("") && !buffer.toString().trim().equals("")) {
+						String sentence = buffer.toString();
+						extract(conll2rdf, new SplitSentence(sentence, sent, comments, commentLines), out);
+						if (hasTokens(sentence))
+							sent++;
+						comments.clear();
+						commentLines.clear();
+						buffer.setLength(0);
+					} else
+						buffer.append(normalized).append('\n');
+			}
+			// the end of a run ends the sentence, as does an empty line
+			if(!buffer.toString().trim().equals("")) {
+				extract(conll2rdf, new SplitSentence(buffer.toString(), sent, comments, commentLines), out);
 				comments.clear();
+				commentLines.clear();
+				buffer.setLength(0);
 			}
-			print(m,select,out);
 		}
+		if (mapped != null)
+			mapped.close();
+		if (index != null)
+			index.close();
+		//wait for threads to finish work, then terminate them
+		flushOutputBuffer(true, out);
+		stopThreads();
 		if (!dRTs.isEmpty())
 			LOG.debug("Done - List of interations and execution times for the updates done (in given order):\n\t\t" + dRTs.toString());
 
-		getOutputStream().close();
+		if (getSentenceOutput() != null) {
+			if (!commentLines.isEmpty())
+				getSentenceOutput().put(new ParsedSentence(ModelFactory.createDefaultModel(), commentLines));
+			getSentenceOutput().close();
+		} else {
+			for (String comment : commentLines)
+				out.write(comment + "\n");
+			out.flush();
+			getOutputStream().close();
+		}
 	
 	}
 
+	/**
+	 * Convert, update and print a sentence right away, or hand it over to the ExtractorThreads.
+	 */
+	private void extract(CoNLL2RDF conll2rdf, SplitSentence sentence, Writer out) throws IOException {
+		if (updateRequests == null)
+			updateRequests = compileUpdates(updates);
+		if (extractorThreads.isEmpty()) {
+			emit(extract(conll2rdf, sentence), out);
+			return;
+		}
+		// backpressure: while the output buffer is full, wait for the oldest sentence and write it
+		while (sentBufferOut.isFull()) {
+			emit(sentBufferOut.take(), out);
+		}
+		long seq = sentBufferOut.reserve();
+		putTask(new ImmutablePair<SplitSentence, Long>(sentence, seq));
+		flushOutputBuffer(false, out);
+	}
+
+	/**
+	 * Convert a sentence, apply the updates and render it for output.
+	 * @return the sentence graph for the SentencePipe (left), or else the printed sentence including its comments (right)
+	 */
+	private Pair<ParsedSentence, String> extract(CoNLL2RDF conll2rdf, SplitSentence sentence) throws IOException {
+		conll2rdf.setSentenceCount(sentence.sent);
+		Model m = conll2rdf.conll2model(new StringReader(sentence.buffer+"\n"));
+		if(m!=null) { // null if an error occurred
+			addRuntimes(executeUpdates(m, updateRequests));
+			if (sentence.comments.size() > 0)
+				injectSentenceComments(m, sentence.comments, conll2rdf.sentenceNode(sentence.sent));
+		}
+		if (getSentenceOutput() != null) {
+			if (m == null) // pass the comments on, nonetheless
+				m = ModelFactory.createDefaultModel();
+			return new ImmutablePair<ParsedSentence, String>(new ParsedSentence(m, sentence.commentLines), null);
+		}
+		StringWriter out = new StringWriter();
+		for (String comment : sentence.commentLines)
+			out.write(comment + "\n");
+		if (m != null)
+			print(m, select, out);
+		return new ImmutablePair<ParsedSentence, String>(null, out.toString());
+	}
+
+	/**
+	 * Hand the sentence over to the next component, or print it.
+	 */
+	private void emit(Pair<ParsedSentence, String> sentence, Writer out) throws IOException {
+		if (sentence.getLeft() != null) {
+			getSentenceOutput().put(sentence.getLeft());
+		} else {
+			out.write(sentence.getRight());
+			out.flush();
+		}
+	}
+
+	/**
+	 * Emits all sentences at the head of the output buffer that have already been processed.
+	 * @param wait
+	 * 			if true, block until all pending sentences are processed and emitted.
+	 */
+	private void flushOutputBuffer(boolean wait, Writer out) throws IOException {
+		if (sentBufferOut == null)
+			return;
+		Pair<ParsedSentence, String> sentence;
+		while ((sentence = wait ? sentBufferOut.take() : sentBufferOut.poll()) != null) {
+			emit(sentence, out);
+		}
+	}
+
+	/**
+	 * @return true if CoNLL2RDF creates a sentence from this block, i.e., it contains a row that isn't just a comment
+	 */
+	static boolean hasTokens(String buffer) {
+		for (int start = 0; start < buffer.length(); ) {
+			int end = buffer.indexOf('\n', start);
+			if (end < 0)
+				end = buffer.length();
+			if (Format2RDF.isRow(buffer, start, end))
+				return true;
+			start = end + 1;
+		}
+		return false;
+	}
+
+	private synchronized void addRuntimes(List<Pair<Integer,Long>> ret) {
+		if (dRTs.isEmpty())
+			dRTs.addAll(ret);
+		else
+			for (int x = 0; x < ret.size(); ++x)
+				dRTs.set(x, new ImmutablePair<Integer, Long>(dRTs.get(x).getKey() + ret.get(x).getKey(), dRTs.get(x).getValue() + ret.get(x).getValue()));
+	}
+
+	/**
+	 * Starts a fixed pool of ExtractorThreads working off a single bounded work queue, unless a single thread is requested.
+	 * Results are collected in a reorder buffer of 4 * threads slots and emitted in input order.
+	 */
+	private void initThreads() throws IOException {
+		extractorThreads.clear();
+		sentBufferOut = null;
+		int n = threads;
+		if (n <= 0)
+			n = (Runtime.getRuntime().availableProcessors()>0)?(Runtime.getRuntime().availableProcessors()):(1);
+		if (n == 1)
+			return;
+		LOG.info("Executing on "+n+" threads.");
+		sentBufferOut = new SentenceReorderBuffer<Pair<ParsedSentence, String>>(4 * n);
+		workQueue = new ArrayBlockingQueue<Pair<SplitSentence, Long>>(n);
+		for (int i = 0; i < n; i++) {
+			ExtractorThread t = new ExtractorThread(i);
+			t.setDaemon(true);
+			extractorThreads.add(t);
+			t.start();
+		}
+	}
+
+	private void stopThreads() throws IOException {
+		for (int i = 0; i < extractorThreads.size(); i++) {
+			putTask(SHUTDOWN);
+		}
+		for (ExtractorThread t:extractorThreads) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				LOG.warn("Interrupted while waiting for "+t.getName()+" to terminate.");
+				Thread.currentThread().interrupt();
+			}
+		}
+		extractorThreads.clear();
+	}
+
+	private void putTask(Pair<SplitSentence, Long> task) throws IOException {
+		try {
+			workQueue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for ExtractorThreads", e);
+		}
+	}
+
+	@Override
+	boolean producesSentenceOutput() {
+		// SELECT results are not RDF
+		return select == null;
+	}
+
+	@Override
+	boolean supportsSharding() {
+		// the columns of a CoNLL-U Plus file are only given at its beginning
+		return !readColumnComment && !columns.isEmpty();
+	}
+
 	/**
 	 * Adds a list of conll comments to a sentence model as a rdfs:comment property separated by escaped newlines.
+	 * With {@link #setTypedComments(boolean) typed comments}, <code>key = value</code> comments are added as
+	 * <code>conll:key</code> properties instead, and only the others are joined into the rdfs:comment.
 	 * @param model a RDF Model representing a sentence
 	 * @param comments a list of single line comments
-	 * @return the updated model
+	 * @param sentence the nif:Sentence created by the conversion, or null if it isn't known
 	 */
-	private Model injectSentenceComments(Model model, ArrayList<String> comments) {
+	private void injectSentenceComments(Model model, List<String> comments, Node sentence) {
 		LOG.debug("Injecting comments.");
-		// alternative to ParameterizedSparqlString: UpdateQuery
-		ParameterizedSparqlString s = new ParameterizedSparqlString();
-		s.setCommandText("PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n"
-			+"PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
-			+"INSERT { ?node rdfs:comment ?comment . }"
-			+"WHERE { ?node a nif:Sentence . }");
-		s.setLiteral("comment", String.join("\\n", comments));
-
-		UpdateAction.execute(s.asUpdate(), model);
-		return model;
+		Graph graph = model.getGraph();
+		List<Node> sentences;
+		if (sentence != null && graph.contains(sentence, RDF.Nodes.type, NIF_SENTENCE))
+			sentences = Collections.singletonList(sentence);
+		else // the sentence was renamed by an update, or converted via Turtle
+			sentences = graph.find(Node.ANY, RDF.Nodes.type, NIF_SENTENCE).mapWith(Triple::getSubject).toList();
+		List<String> untyped = comments;
+		List<Pair<Node, Node>> typed = new ArrayList<Pair<Node, Node>>();
+		if (typedComments) {
+			untyped = new ArrayList<String>();
+			for (String comment : comments) {
+				Matcher m = TYPED_COMMENT.matcher(comment);
+				// the formatter and extractor look for global.columns in the rdfs:comment
+				if (m.matches() && CoNLL2RDF.isLocalName(m.group(1)) && !m.group(1).equals("global.columns"))
+					typed.add(new ImmutablePair<Node, Node>(NodeFactory.createURI(CONLL + m.group(1)),
+							NodeFactory.createLiteral(m.group(2).trim())));
+				else
+					untyped.add(comment);
+			}
+		}
+		for (Node node : sentences) {
+			for (Pair<Node, Node> property : typed)
+				graph.add(new Triple(node, property.getKey(), property.getValue()));
+			if (!untyped.isEmpty())
+				graph.add(new Triple(node, RDFS.Nodes.comment, NodeFactory.createLiteral(String.join("\\n", untyped))));
+		}
 	}
 	/**
 	 * Searches a BufferedReader for a global.columns = field to extract the column names from (CoNLL-U Plus feature).
@@ -221,38 +587,44 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		LOG.info("\tCoNLL columns: " + this.getColumns());
 	}
 
+	/** parse the update scripts once, so they can be reused for every sentence and iteration */
+	public List<Pair<UpdateRequest, String>> compileUpdates(List<Pair<String, String>> updates) {
+		List<Pair<UpdateRequest, String>> result = new ArrayList<Pair<UpdateRequest, String>>(updates.size());
+		for (Pair<String, String> update : updates)
+			result.add(new ImmutablePair<UpdateRequest, String>(UpdateFactory.create(update.getKey()), update.getValue()));
+		return result;
+	}
+
 	public List<Pair<Integer, Long>> update(Model m, List<Pair<String, String>> updates) {
+		return executeUpdates(m, compileUpdates(updates));
+	}
+
+	public List<Pair<Integer, Long>> executeUpdates(Model m, List<Pair<UpdateRequest, String>> updates) {
 		List<Pair<Integer, Long>> result = new ArrayList<Pair<Integer, Long>>();
-		for (Pair<String, String> update : updates) {
+		// detects the fixpoint of iterated updates
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		for (Pair<UpdateRequest, String> update : updates) {
 			Long startTime = System.currentTimeMillis();
-			ChangedListener cL = new ChangedListener();
-			m.register(cL);
-			String oldModel = "";
 			int frq = MAXITERATE, v = 0;
 			boolean change = true;
 			try {
 				frq = Integer.parseInt(update.getValue());
 			} catch (NumberFormatException e) {
-				if (!"*".equals(update.getValue()))
+				if (!"*".equals(update.getValue())) {
+					tracker.close();
 					throw e;
+				}
 			}
 			while(v < frq && change) {
-				UpdateAction.execute(UpdateFactory.create(update.getKey()), m);
-				if (oldModel.isEmpty())
-					change = cL.hasChanged();
-				else {
-					change = !m.toString().equals(oldModel);
-					oldModel = "";
-				}
-				if (CHECKINTERVAL.contains(v))
-					oldModel = m.toString();
+				UpdateAction.execute(update.getKey(), m);
+				change = tracker.hasChanged();
 				v++;
 			}
 			if (v == MAXITERATE)
 				LOG.warn("Warning: MAXITERATE reached.");
 			result.add(new ImmutablePair<Integer, Long>(v, System.currentTimeMillis() - startTime));
-			m.unregister(cL);
 		}
+		tracker.close();
 		return result;
 	}
 		
@@ -280,7 +652,7 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 			out.write("\n");
 			out.flush();
 		} else {
-			m.write(out, "TTL");
+			outputFormat.write(m, out);
 			out.flush();
 		}
 	}
@@ -1,6 +1,7 @@
 package org.acoli.conll.rdf;
 
 import static org.acoli.conll.rdf.CoNLLRDFCommandLine.parseSelectOptionLegacy;
+import static org.acoli.conll.rdf.CoNLLRDFCommandLine.parseShard;
 
 import java.io.*;
 import java.util.*;
@@ -18,11 +19,25 @@ public class CoNLLStreamExtractorFactory {
 		//FIXME
 		List<Pair<String, String>> updates = new ArrayList<Pair<String, String>>();
 
-		final CommandLine cmd = new CoNLLRDFCommandLine("synopsis: CoNLLStreamExtractor baseURI FIELD1[.. FIELDn] [-u SPARQL_UPDATE1..m] [-s SPARQL_SELECT]\n"
+		final CommandLine cmd = new CoNLLRDFCommandLine("synopsis: CoNLLStreamExtractor baseURI FIELD1[.. FIELDn] [-in FILE [-sentences ID ... | -shard I N]] [-threads T] [-output FORMAT] [-gzip] [-typedComments] [-u SPARQL_UPDATE1..m] [-s SPARQL_SELECT]\n"
 		+ "\tbaseURI       CoNLL base URI, cf. CoNLL2RDF\n"
 		+ "\tFIELDi        CoNLL field label, cf. CoNLL2RDF",
-		"reads CoNLL from stdin, splits sentences, creates CoNLL RDF, applies SPARQL queries",
+		"reads CoNLL from stdin or a file, splits sentences, creates CoNLL RDF, applies SPARQL queries",
 		new Option[] {
+			Option.builder("in").hasArg().argName("file")
+					.desc("read CoNLL from FILE rather than stdin, memory-mapped unless it is compressed").build(),
+			Option.builder("sentences").hasArgs().argName("id")
+					.desc("process only the sentences with these IDs (s1_0), # sent_ids, numbers or ranges of numbers (1-10) of FILE, located by its index FILE.idx").build(),
+			Option.builder("shard").numberOfArgs(2).argName("i n")
+					.desc("process only shard I of N of FILE, cut at sentence boundaries into N byte ranges of about the same size, with the sentence IDs of the entire file").build(),
+			Option.builder("threads").hasArg()
+					.desc("convert, update and print on T threads, output order is preserved\ndefault: 1, 0 for all logical processor cores")
+					.type(Number.class).build(),
+			Option.builder("output").hasArg().argName("format")
+					.desc("write turtle (default), ntriples, nquads (one graph per sentence) or turtle-blocks (streamed)")
+					.build(),
+			new Option("gzip", false, "write gzip-compressed output, compressed in parallel blocks"),
+			new Option("typedComments", false, "add key = value comments, e.g., # sent_id = 1, as properties conll:key of the sentence rather than in its rdfs:comment"),
 			Option.builder("s").hasArg().hasArgs().desc("SPARQL SELECT statement to produce TSV output").build(),
 			Option.builder("u").hasArgs().argName("sparql_update").desc("DEPRECATED - please use CoNLLRDFUpdater instead!").build()
 			/* "SPARQL_UPDATE SPARQL UPDATE (DELETE/INSERT) query, either literally or its location (file/uri).
@@ -45,6 +60,48 @@ public class CoNLLStreamExtractorFactory {
 			extractor.setColumns(argList);
 		}
 
+		if (cmd.hasOption("shard")) {
+			if (!cmd.hasOption("in") || cmd.hasOption("sentences"))
+				throw new ParseException("-shard requires -in FILE and cannot be combined with -sentences");
+			if (argList.isEmpty())
+				throw new ParseException("-shard requires the CoNLL columns as arguments");
+		}
+
+		if (cmd.hasOption("in") && cmd.hasOption("shard")) {
+			// the input is numbered as a shard of the entire file, but not memory-mapped
+			Pair<Integer, Integer> shard = parseShard(cmd.getOptionValues("shard"));
+			SentenceIndex index = SentenceIndex.forFile(new File(cmd.getOptionValue("in")));
+			if (index.isRDF())
+				throw new IOException(cmd.getOptionValue("in") + " is CoNLL-RDF rather than CoNLL");
+			extractor.setFirstSentence(index.shard(shard.getLeft(), shard.getRight())[0]);
+			extractor.setInputStream(index.openShard(shard.getLeft(), shard.getRight()));
+		} else if (cmd.hasOption("in")) {
+			extractor.setInputStream(CompressedStreams.openInput(cmd.getOptionValue("in")));
+			extractor.setInputFile(new File(cmd.getOptionValue("in")));
+		}
+
+		if (cmd.hasOption("sentences")) {
+			if (!cmd.hasOption("in"))
+				throw new ParseException("-sentences requires -in FILE");
+			extractor.setSentences(Arrays.asList(cmd.getOptionValues("sentences")));
+		}
+
+		if (cmd.hasOption("threads")) {
+			extractor.setThreads(((Number) cmd.getParsedOptionValue("threads")).intValue());
+		}
+
+		if (cmd.hasOption("output")) {
+			extractor.setOutputFormat(OutputFormat.forOption(cmd.getOptionValue("output")));
+		}
+
+		if (cmd.hasOption("gzip")) {
+			extractor.setOutputStream(CompressedStreams.gzipStdout());
+		}
+
+		if (cmd.hasOption("typedComments")) {
+			extractor.setTypedComments(true);
+		}
+
 		if (cmd.hasOption("s")) {
 			String sparqlStringOrFile = String.join(" ", Arrays.asList(cmd.getOptionValues("s")));
 			LOG.debug("-s option was set with " + sparqlStringOrFile);
@@ -0,0 +1,491 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Transparent gzip for the input and output of the CoNLL-RDF components.
+ *
+ * Input is recognized by its first bytes rather than by its file name, so that compressed data can be piped
+ * into any component. It is inflated on a separate thread, one chunk ahead of the reader, and may consist of
+ * several gzip members, as written by <code>cat a.gz b.gz</code>, <code>pigz</code> or {@link #gzip(OutputStream)}.
+ *
+ * Output is cut into blocks that are compressed in parallel, each as a gzip member of its own, and written in
+ * order. The result is a single valid gzip file. All compressed outputs share one pool of compressing threads.
+ */
+final class CompressedStreams {
+	static final Logger LOG = Logger.getLogger(CompressedStreams.class);
+	/** uncompressed bytes per gzip member of the output */
+	static final int BLOCK_SIZE = 1 << 20;
+	/** after this time, a flush writes the current block, even if it is not full */
+	static final long FLUSH_MILLIS = 1000;
+	/** bytes per chunk handed from the inflating thread to the reader */
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static PrintStream gzipStdout = null;
+	private static ExecutorService compressor = null;
+	private static ScheduledExecutorService flusher = null;
+
+	private CompressedStreams() {
+	}
+
+	/**
+	 * @return an input stream that inflates <code>in</code> if it is gzip-compressed and passes it through otherwise.
+	 * 			Nothing is read before the first read.
+	 */
+	static InputStream decompress(InputStream in) {
+		return new DetectingInputStream(in);
+	}
+
+	/**
+	 * @param path
+	 * 			a file, plain or gzip-compressed, or <code>System.in</code>
+	 */
+	static BufferedReader openInput(String path) throws IOException {
+		if (path.equals("System.in"))
+			return new BufferedReader(new InputStreamReader(decompress(System.in)));
+		if (!new File(path).canRead())
+			throw new IOException("Could not read from " + path);
+		return new BufferedReader(new InputStreamReader(decompress(new FileInputStream(path))));
+	}
+
+	/**
+	 * @return true if the file starts like gzip-, bzip2- or zstd-compressed data
+	 */
+	static boolean isCompressed(File file) throws IOException {
+		byte[] magic = new byte[4];
+		int n = 0;
+		try (InputStream in = new FileInputStream(file)) {
+			for (int b = 0; n < magic.length && (b = in.read(magic, n, magic.length - n)) >= 0; n += b);
+		}
+		return compression(magic, n) != null;
+	}
+
+	/**
+	 * @param n
+	 * 			the number of bytes read into <code>magic</code>, at most 4
+	 * @return the compression recognized by the first bytes of a stream, "gzip", "bzip2" or "zstd", or null
+	 */
+	private static String compression(byte[] magic, int n) {
+		if (n >= 2 && magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b)
+			return "gzip";
+		if (n == 4 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h' && magic[3] >= '1' && magic[3] <= '9')
+			return "bzip2";
+		if (n == 4 && magic[0] == (byte) 0x28 && magic[1] == (byte) 0xb5 && magic[2] == (byte) 0x2f && magic[3] == (byte) 0xfd)
+			return "zstd";
+		return null;
+	}
+
+	/**
+	 * @param path
+	 * 			a file, gzip-compressed if the name ends with <code>.gz</code>, or <code>System.out</code>
+	 */
+	static PrintStream openOutput(String path) throws IOException {
+		if (path.equals("System.out"))
+			return System.out;
+		File file = new File(path);
+		if (!file.canWrite() && !file.createNewFile())
+			throw new IOException("Could not write to " + path);
+		if (path.endsWith(".gz"))
+			return finishOnExit(gzip(new FileOutputStream(file)));
+		return new PrintStream(file);
+	}
+
+	/**
+	 * @return <code>System.out</code>, gzip-compressed, the same stream on every call
+	 */
+	static synchronized PrintStream gzipStdout() {
+		if (gzipStdout == null)
+			gzipStdout = finishOnExit(gzip(System.out));
+		return gzipStdout;
+	}
+
+	/**
+	 * @return a stream that compresses blocks of {@link #BLOCK_SIZE} bytes on all processor cores
+	 * 			and writes them to <code>out</code>. The last block is written by <code>close()</code>.
+	 */
+	static ParallelGzipOutputStream gzip(OutputStream out) {
+		return new ParallelGzipOutputStream(out, BLOCK_SIZE, Runtime.getRuntime().availableProcessors(), FLUSH_MILLIS);
+	}
+
+	/**
+	 * Components do not always close their output, and a compressed stream is not complete before it is closed.
+	 */
+	private static PrintStream finishOnExit(ParallelGzipOutputStream gzip) {
+		PrintStream out = new PrintStream(gzip);
+		gzip.closeOnExit(out::close);
+		return out;
+	}
+
+	/**
+	 * @return the threads that compress the blocks of all outputs, one per processor core
+	 */
+	private static synchronized ExecutorService compressor() {
+		if (compressor == null)
+			compressor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread t = new Thread(r, "gzip-writer");
+				t.setDaemon(true);
+				return t;
+			});
+		return compressor;
+	}
+
+	/**
+	 * @return the thread that flushes the blocks of outputs that have not been flushed since the block got old
+	 */
+	private static synchronized ScheduledExecutorService flusher() {
+		if (flusher == null)
+			flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "gzip-flush");
+				t.setDaemon(true);
+				return t;
+			});
+		return flusher;
+	}
+
+	/**
+	 * Looks at the first bytes of the input to decide whether it has to be inflated.
+	 */
+	private static final class DetectingInputStream extends FilterInputStream {
+		private boolean detected = false;
+
+		DetectingInputStream(InputStream in) {
+			super(new BufferedInputStream(in, CHUNK_SIZE));
+		}
+
+		private void detect() throws IOException {
+			if (detected)
+				return;
+			detected = true;
+			byte[] magic = new byte[4];
+			in.mark(magic.length);
+			int n = 0;
+			for (int b = 0; n < magic.length && (b = in.read(magic, n, magic.length - n)) >= 0; n += b);
+			in.reset();
+			String compression = compression(magic, n);
+			if ("gzip".equals(compression)) {
+				LOG.debug("Reading gzip-compressed input");
+				in = new ReadAheadInputStream(new GZIPInputStream(new MemberAwareInputStream(in), CHUNK_SIZE));
+			} else if (compression != null) {
+				throw new IOException("Input is " + compression + "-compressed, which is not supported, decompress it with "
+						+ compression + " -dc first");
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			detect();
+			return in.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			detect();
+			return in.read(b, off, len);
+		}
+
+		@Override
+		public int available() throws IOException {
+			return detected ? in.available() : 0;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * GZIPInputStream only looks for a further member if the underlying stream reports bytes as available.
+	 * A pipe may not have them yet, so here, available() waits until it knows whether the input has ended.
+	 */
+	private static final class MemberAwareInputStream extends FilterInputStream {
+		MemberAwareInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int available() throws IOException {
+			int available = in.available();
+			if (available > 0)
+				return available;
+			in.mark(1);
+			int b = in.read();
+			in.reset();
+			return (b < 0) ? 0 : 1;
+		}
+	}
+
+	/**
+	 * Reads the underlying stream on a thread of its own, a bounded number of chunks ahead.
+	 */
+	private static final class ReadAheadInputStream extends InputStream {
+		private static final byte[] EOF = new byte[0];
+		private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(16);
+		private final Thread reader;
+		private volatile IOException error = null;
+		private byte[] chunk = null;
+		private int pos = 0;
+
+		ReadAheadInputStream(final InputStream in) {
+			reader = new Thread(() -> {
+				try {
+					for (byte[] buffer = new byte[CHUNK_SIZE]; ; buffer = new byte[CHUNK_SIZE]) {
+						int n = in.read(buffer);
+						if (n < 0)
+							break;
+						if (n > 0)
+							chunks.put((n == buffer.length) ? buffer : Arrays.copyOf(buffer, n));
+					}
+				} catch (IOException e) {
+					error = e;
+				} catch (InterruptedException e) {
+					// closed
+					return;
+				} finally {
+					try {
+						in.close();
+					} catch (IOException e) {
+						LOG.debug(e);
+					}
+				}
+				try {
+					chunks.put(EOF);
+				} catch (InterruptedException e) {
+					// closed
+				}
+			}, "gzip-reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		/**
+		 * @return false at the end of the input
+		 */
+		private boolean nextChunk() throws IOException {
+			while (chunk == null || (chunk != EOF && pos == chunk.length)) {
+				try {
+					chunk = chunks.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for input");
+				}
+				pos = 0;
+			}
+			if (chunk == EOF && error != null)
+				throw error;
+			return chunk != EOF;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return nextChunk() ? (chunk[pos++] & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!nextChunk())
+				return -1;
+			int n = Math.min(len, chunk.length - pos);
+			System.arraycopy(chunk, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return (chunk == null || chunk == EOF) ? 0 : chunk.length - pos;
+		}
+
+		@Override
+		public void close() {
+			reader.interrupt();
+			chunk = EOF;
+		}
+	}
+
+	/**
+	 * Compresses each block as a gzip member on the shared pool, and writes the members in order.
+	 * flush() writes the members that are ready. It cuts the current block short only once the block is older
+	 * than the flush interval: the components flush after each sentence, which would leave blocks too small to
+	 * compress, but a reader at the other end of a pipe should not wait for a whole block of a slow stream.
+	 * If the block is younger, it is flushed again when it gets old, in case no more output follows for a while.
+	 */
+	static final class ParallelGzipOutputStream extends OutputStream {
+		private final OutputStream out;
+		private final int blockSize;
+		private final int maxPending;
+		private final long flushNanos;
+		private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+		private byte[] block;
+		private int size = 0;
+		/** when the first byte of the current block was written */
+		private long blockStart = 0;
+		private long members = 0;
+		private boolean closed = false;
+		private Thread closeOnExit = null;
+		private ScheduledFuture<?> delayedFlush = null;
+
+		/**
+		 * @param threads
+		 * 			the number of blocks compressed at the same time, at most, before the writer waits
+		 * @param flushMillis
+		 * 			the age of the current block, after which flush() writes it
+		 */
+		ParallelGzipOutputStream(OutputStream out, int blockSize, int threads, long flushMillis) {
+			this.out = out;
+			this.blockSize = blockSize;
+			maxPending = 2 * Math.max(1, threads);
+			flushNanos = flushMillis * 1000000;
+			block = new byte[blockSize];
+		}
+
+		ParallelGzipOutputStream(OutputStream out, int blockSize, int threads) {
+			this(out, blockSize, threads, FLUSH_MILLIS);
+		}
+
+		/**
+		 * Run <code>close</code> when the JVM exits, unless this stream has been closed before.
+		 */
+		synchronized void closeOnExit(Runnable close) {
+			closeOnExit = new Thread(close, "gzip-finish");
+			Runtime.getRuntime().addShutdownHook(closeOnExit);
+		}
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			if (size == blockSize)
+				submitBlock();
+			if (size == 0)
+				blockStart = System.nanoTime();
+			block[size++] = (byte) b;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (size == blockSize)
+					submitBlock();
+				if (size == 0)
+					blockStart = System.nanoTime();
+				int n = Math.min(len, blockSize - size);
+				System.arraycopy(b, off, block, size, n);
+				size += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		private void submitBlock() throws IOException {
+			final byte[] data = block;
+			final int length = size;
+			pending.addLast(compressor().submit(() -> compress(data, length)));
+			members++;
+			block = new byte[blockSize];
+			size = 0;
+			while (pending.size() > maxPending)
+				writeMember();
+		}
+
+		private static byte[] compress(byte[] data, int length) throws IOException {
+			ByteArrayOutputStream result = new ByteArrayOutputStream(length / 4 + 64);
+			try (GZIPOutputStream gz = new GZIPOutputStream(result, CHUNK_SIZE)) {
+				gz.write(data, 0, length);
+			}
+			return result.toByteArray();
+		}
+
+		private void writeMember() throws IOException {
+			try {
+				out.write(pending.removeFirst().get());
+			} catch (ExecutionException e) {
+				throw new IOException("Failed to compress output", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while compressing output");
+			}
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			long age = System.nanoTime() - blockStart;
+			if (size > 0 && age >= flushNanos) {
+				submitBlock();
+				while (!pending.isEmpty())
+					writeMember();
+			} else if (size > 0 && delayedFlush == null) {
+				delayedFlush = flusher().schedule(this::delayedFlush, flushNanos - age, TimeUnit.NANOSECONDS);
+			}
+			while (!pending.isEmpty() && pending.peekFirst().isDone())
+				writeMember();
+			out.flush();
+		}
+
+		private synchronized void delayedFlush() {
+			delayedFlush = null;
+			if (closed)
+				return;
+			try {
+				flush();
+			} catch (IOException e) {
+				LOG.warn("Failed to flush compressed output: " + e.getMessage());
+			}
+		}
+
+		/**
+		 * Writes the last block, an empty member if there was no output at all.
+		 */
+		@Override
+		public synchronized void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			if (delayedFlush != null)
+				delayedFlush.cancel(false);
+			try {
+				if (size > 0 || members == 0)
+					submitBlock();
+				while (!pending.isEmpty())
+					writeMember();
+				out.flush();
+			} finally {
+				out.close();
+				if (closeOnExit != null && closeOnExit != Thread.currentThread()) {
+					try {
+						Runtime.getRuntime().removeShutdownHook(closeOnExit);
+					} catch (IllegalStateException e) {
+						// the JVM is exiting already
+					}
+				}
+			}
+		}
+	}
+}
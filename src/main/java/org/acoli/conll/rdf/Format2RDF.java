@@ -57,7 +57,33 @@ abstract class Format2RDF {
 	 */
 	protected int pos=0; 
 	
-	protected final static Pattern empty = Pattern.compile("^(O|-|--|_|__)?$");	
+	/** continue with sentence ID <code>sent</code>, e.g., if sentences are numbered when the input is split and
+	 *  converted out of order by several instances */
+	void setSentenceCount(int sent) {
+		this.sent=sent;
+		this.tok=0;
+	}
+
+	protected final static Pattern empty = Pattern.compile("^(O|-|--|_|__)?$");
+
+	/** comment to the end of the line */
+	protected final static Pattern comment = Pattern.compile("#.*");
+
+	/** column roles, see <code>colRoles</code> */
+	protected final static int WORD=1, HEAD=2, PREDICATE=4;
+
+	/** roles of the columns as bit sets of WORD, HEAD and PREDICATE, resolved once from the column labels in the constructor,
+	 *  so that converting a cell doesn't require matching its label */
+	protected final int[] colRoles;
+
+	/** true if the last column is an <i>X</i><code>-ARGs</code> column, it then stands for itself and all further columns */
+	protected final boolean hasArgs;
+
+	/** the label of the last column without <code>-ARGs</code>, i.e., the label of the predicate column <i>X</i> */
+	protected final String argsStem;
+
+	/** the ID column, -1 if there is none */
+	protected final int idCol;
 	
 	/**
 	 * @param baseURI namespace for word and sentence IDs,<br>
@@ -112,7 +138,92 @@ abstract class Format2RDF {
 		field2col = new Hashtable<String,Integer>();
 		for(int i = 0; i<col2field.size(); i++)
 			field2col.put(col2field.get(i), i);
-			
+
+		String lastCol = col2field.isEmpty() ? "" : col2field.get(col2field.size()-1);
+		hasArgs = lastCol.toLowerCase().endsWith("args");
+		argsStem = lastCol.replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","");
+		idCol = field2col.containsKey("ID") ? field2col.get("ID") : -1;
+		colRoles = new int[col2field.size()];
+		for(int i = 0; i<col2field.size(); i++) {
+			String label = col2field.get(i).toLowerCase();
+			if(label.equals("word"))
+				colRoles[i] |= WORD;
+			if(label.matches("^head[0-9]*$"))
+				colRoles[i] |= HEAD;
+			if(col2field.get(i).equals(argsStem))
+				colRoles[i] |= PREDICATE;
+		}
+	}
+
+	/** true if column <code>col</code> has the role, false for columns beyond the labelled ones */
+	protected boolean hasRole(int col, int role) {
+		return col<colRoles.length && (colRoles[col] & role)!=0;
+	}
+
+	/**
+	 * Remove <code>&lt;s&gt;</code> and <code>&lt;p&gt;</code> tags from a line and trim it, so that we can also read Sketch Engine
+	 * data and split at s and p elements. All other XML elements, as used by Sketch Engine or TreeTagger chunker, are skipped.<br>
+	 * Same as <code>line.replaceAll("&lt;[\\/]?[psPS]( [^&gt;]*&gt;|&gt;)","").trim()</code>, then checking for
+	 * <code>^&lt;[^&gt;]*&gt;$</code>, but in a single scan of the line, as this is done for every line of the input.
+	 * @return the line, or null if it is another XML element
+	 */
+	static String normalizeLine(String line) {
+		int tag = line.indexOf('<');
+		if(tag>=0) {
+			StringBuilder result = null;
+			int copied = 0;
+			while(tag>=0) {
+				int end = sentenceTagEnd(line, tag);
+				if(end<0) {
+					tag = line.indexOf('<', tag+1);
+				} else {
+					if(result==null)
+						result = new StringBuilder(line.length());
+					result.append(line, copied, tag);
+					copied = end;
+					tag = line.indexOf('<', end);
+				}
+			}
+			if(result!=null)
+				line = result.append(line, copied, line.length()).toString();
+		}
+		line = line.trim();
+		if(line.length()>1 && line.charAt(0)=='<' && line.indexOf('>')==line.length()-1)
+			return null;
+		return line;
+	}
+
+	/**
+	 * Whether a line of a sentence is a row, rather than blank or just a comment: it has some non-whitespace before
+	 * the first <code>#</code>. Same as <code>!line.replaceFirst("#.*","").trim().isEmpty()</code>, but a scan of
+	 * the line from <code>start</code> to <code>end</code> that stops at its first non-whitespace character.
+	 */
+	static boolean isRow(CharSequence line, int start, int end) {
+		for(int i=start; i<end; i++)
+			if(line.charAt(i)>' ')
+				return line.charAt(i)!='#';
+		return false;
+	}
+
+	/** @see #isRow(CharSequence, int, int) */
+	static boolean isRow(CharSequence line) {
+		return isRow(line, 0, line.length());
+	}
+
+	/** @return the end of the s or p tag starting at <code>start</code>, -1 if there is none */
+	private static int sentenceTagEnd(String line, int start) {
+		int i = start+1;
+		if(i<line.length() && line.charAt(i)=='/')
+			i++;
+		if(i+1>=line.length() || "psPS".indexOf(line.charAt(i))<0)
+			return -1;
+		i++;
+		if(line.charAt(i)=='>')
+			return i+1;
+		if(line.charAt(i)!=' ')
+			return -1;
+		int close = line.indexOf('>', i);
+		return close<0 ? -1 : close+1;
 	}
 	
 	/** Format2RDF can wrap another Format2RDF instance in order to build on their conll2rdf() method, e.g.,
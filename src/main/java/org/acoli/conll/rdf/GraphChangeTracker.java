@@ -0,0 +1,184 @@
+package org.acoli.conll.rdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphListener;
+import org.apache.jena.graph.Triple;
+
+/**
+ * Detects whether a graph has actually changed between two calls of {@link #hasChanged()}, e.g. to find the
+ * fixpoint of an iterated update.
+ *
+ * Graph events are also fired for no-op changes, like re-adding a triple that is already present, and a triple
+ * deleted and re-inserted by the same update is no change either. The tracker therefore compares the size of the
+ * graph at each event with its size at the previous one: only an event that changed the size is a real change,
+ * and only its triples are kept, in the set of triples whose presence has flipped since the last check. The graph
+ * itself is never copied, so each event and each check costs O(delta), given a graph with a constant-time
+ * {@link Graph#size()} such as the in-memory graphs of models and general datasets.
+ *
+ * Changes that are not broken down into triples (e.g. {@link Graph#clear()}), and bulk events of which only some
+ * triples were new, cannot be attributed to single triples. The next check then reports a change if the graph is
+ * not empty before and after, and counts the net difference in size.
+ *
+ * The tracker is registered with the graph on construction and must be {@link #close()}d after use.
+ * It is not thread-safe, i.e. the graph must only be modified by one thread at a time.
+ */
+class GraphChangeTracker implements GraphListener {
+	private final Graph graph;
+	/** the triples whose presence differs from the last check */
+	private final Set<Triple> flipped = new HashSet<Triple>();
+	/** the size of the graph at the last check and after the last event */
+	private long checkedSize;
+	private long size;
+	/** set when the graph reported a change that is not broken down into triples */
+	private boolean untracked = false;
+	/** the triples added and removed, as found by the checks so far */
+	private long added = 0;
+	private long removed = 0;
+
+	GraphChangeTracker(Graph graph) {
+		this.graph = graph;
+		size = checkedSize = graph.size();
+		graph.getEventManager().register(this);
+	}
+
+	/**
+	 * @return true if the graph differs from its state at the last call (or at construction of the tracker)
+	 */
+	boolean hasChanged() {
+		boolean changed;
+		if (untracked) {
+			changed = checkedSize > 0 || size > 0;
+			if (size > checkedSize)
+				added += size - checkedSize;
+			else
+				removed += checkedSize - size;
+			untracked = false;
+		} else {
+			changed = !flipped.isEmpty();
+			for (Triple t : flipped) {
+				if (graph.contains(t))
+					added++;
+				else
+					removed++;
+			}
+		}
+		flipped.clear();
+		checkedSize = size;
+		return changed;
+	}
+
+	/**
+	 * @return the number of triples added since construction, counted at each {@link #hasChanged()}: a triple that
+	 * 			is added and removed again between two checks does not count
+	 */
+	long getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return the number of triples removed since construction, counted like {@link #getAdded()}
+	 */
+	long getRemoved() {
+		return removed;
+	}
+
+	/** unregister from the graph */
+	void close() {
+		graph.getEventManager().unregister(this);
+		flipped.clear();
+	}
+
+	/**
+	 * Keep the triples of an event if it changed the size of the graph by one per triple, i.e. if none of them
+	 * was a no-op.
+	 */
+	private void changed(Collection<Triple> triples) {
+		long last = size;
+		size = graph.size();
+		long delta = Math.abs(size - last);
+		if (delta == 0 || untracked)
+			return;
+		if (delta == triples.size())
+			triples.forEach(this::flip);
+		else
+			untracked = true;
+	}
+
+	private void flip(Triple t) {
+		if (!flipped.remove(t))
+			flipped.add(t);
+	}
+
+	@Override
+	public void notifyAddTriple(Graph g, Triple t) {
+		changed(Collections.singletonList(t));
+	}
+
+	@Override
+	public void notifyAddArray(Graph g, Triple[] triples) {
+		changed(Arrays.asList(triples));
+	}
+
+	@Override
+	public void notifyAddList(Graph g, List<Triple> triples) {
+		changed(triples);
+	}
+
+	@Override
+	public void notifyAddIterator(Graph g, Iterator<Triple> it) {
+		List<Triple> triples = new ArrayList<Triple>();
+		it.forEachRemaining(triples::add);
+		changed(triples);
+	}
+
+	@Override
+	public void notifyAddGraph(Graph g, Graph added) {
+		changed(added.find().toList());
+	}
+
+	@Override
+	public void notifyDeleteTriple(Graph g, Triple t) {
+		changed(Collections.singletonList(t));
+	}
+
+	@Override
+	public void notifyDeleteList(Graph g, List<Triple> triples) {
+		changed(triples);
+	}
+
+	@Override
+	public void notifyDeleteArray(Graph g, Triple[] triples) {
+		changed(Arrays.asList(triples));
+	}
+
+	@Override
+	public void notifyDeleteIterator(Graph g, Iterator<Triple> it) {
+		List<Triple> triples = new ArrayList<Triple>();
+		it.forEachRemaining(triples::add);
+		changed(triples);
+	}
+
+	@Override
+	public void notifyDeleteGraph(Graph g, Graph removed) {
+		changed(removed.find().toList());
+	}
+
+	@Override
+	public void notifyEvent(Graph source, Object value) {
+		// e.g. GraphEvents.removeAll after Graph.clear(), which is not accompanied by per-triple events;
+		// GraphEvents.remove(s, p, o) follows the per-triple events, which already updated the size
+		long last = size;
+		size = graph.size();
+		if (size != last)
+			untracked = true;
+	}
+}
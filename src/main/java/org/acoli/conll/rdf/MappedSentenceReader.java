@@ -0,0 +1,149 @@
+package org.acoli.conll.rdf;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a CoNLL file for {@link CoNLLStreamExtractor} through a memory mapping rather than an input stream.
+ *
+ * Sentence boundaries are found by scanning the mapped bytes for empty lines, and only the bytes of one sentence at
+ * a time are decoded, in the platform charset as by the InputStreamReader on other input. {@link #readLine()} yields
+ * the same lines as BufferedReader.readLine() on the whole file.
+ */
+final class MappedSentenceReader implements Closeable {
+	/** bytes mapped at a time, the file is mapped window by window */
+	static final int WINDOW = 1 << 28;
+
+	private final FileChannel channel;
+	private final long size;
+	private final int windowSize;
+	private final Charset charset = Charset.defaultCharset();
+	private MappedByteBuffer window = null;
+	private long windowStart = 0;
+	// file offset of the next block
+	private long pos = 0;
+	// the current block, handed out line by line
+	private String block = "";
+	private int blockPos = 0;
+
+	MappedSentenceReader(File file) throws IOException {
+		this(file, WINDOW);
+	}
+
+	/**
+	 * @param windowSize
+	 * 			bytes mapped at a time, at least as long as the longest line
+	 */
+	MappedSentenceReader(File file, int windowSize) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		size = channel.size();
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * @return true if the file can be read memory-mapped: a regular file that isn't compressed, in a charset that
+	 * 			encodes line breaks as single bytes
+	 */
+	static boolean canMap(File file) throws IOException {
+		if (!file.isFile() || !Arrays.equals("\n\r".getBytes(Charset.defaultCharset()), new byte[] { '\n', '\r' }))
+			return false;
+		return !CompressedStreams.isCompressed(file);
+	}
+
+	/**
+	 * @return the next line without its line break, or null at the end of the file
+	 */
+	String readLine() throws IOException {
+		while (blockPos == block.length()) {
+			String next = next();
+			if (next == null)
+				return null;
+			block = next;
+			blockPos = 0;
+		}
+		int end = blockPos;
+		while (end < block.length() && block.charAt(end) != '\n' && block.charAt(end) != '\r')
+			end++;
+		String line = block.substring(blockPos, end);
+		// blocks end after a complete line break, so \r\n is never split
+		if (end < block.length())
+			end += (block.charAt(end) == '\r' && end + 1 < block.length() && block.charAt(end + 1) == '\n') ? 2 : 1;
+		blockPos = end;
+		return line;
+	}
+
+	/**
+	 * @return the next block of lines with their line breaks: a sentence including the empty line after it, or the
+	 * 			rest of the window if it ends first, cut after the last complete line. Null at the end of the file.
+	 */
+	String next() throws IOException {
+		if (pos >= size)
+			return null;
+		if (window == null || pos == windowStart + window.limit())
+			map(pos);
+		int end = scan((int) (pos - windowStart));
+		if (end < 0 && windowStart < pos) {
+			// the line continues in the next window
+			map(pos);
+			end = scan(0);
+		}
+		if (end < 0)
+			throw new IOException("Line longer than " + windowSize + " bytes at offset " + pos);
+		ByteBuffer slice = window.duplicate();
+		slice.position((int) (pos - windowStart));
+		slice.limit(end);
+		pos = windowStart + end;
+		return charset.decode(slice).toString();
+	}
+
+	private void map(long start) throws IOException {
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+		windowStart = start;
+	}
+
+	/**
+	 * @return the window offset after the first empty line that follows a non-empty one, or, if there is none, after
+	 * 			the last complete line of the window, -1 if the window does not hold a complete line
+	 */
+	private int scan(int from) {
+		int limit = window.limit();
+		boolean lastWindow = windowStart + limit == size;
+		boolean content = false;
+		boolean blank = true;
+		int lineEnd = -1;
+		for (int i = from; i < limit; ) {
+			int b = window.get(i++) & 0xff;
+			if (b == '\n' || b == '\r') {
+				if (b == '\r') {
+					// a line feed after it may be in the next window
+					if (i == limit && !lastWindow)
+						break;
+					if (i < limit && window.get(i) == '\n')
+						i++;
+				}
+				if (blank && content)
+					return i;
+				content |= !blank;
+				blank = true;
+				lineEnd = i;
+			} else if (b > ' ') {
+				// as by String.trim(), the bytes of other characters are all above
+				blank = false;
+			}
+		}
+		return lastWindow ? limit : lineEnd;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+}
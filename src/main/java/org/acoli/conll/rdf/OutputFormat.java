@@ -0,0 +1,102 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.system.StreamOps;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.writer.WriterStreamRDFBlocks;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+
+/**
+ * The RDF serializations CoNLLStreamExtractor and CoNLLRDFUpdater write sentences in, see option <code>-output</code>.
+ *
+ * Only {@link #TURTLE} analyzes the graph to group and abbreviate it; the others stream the triples of a sentence as
+ * they come, like {@link org.apache.jena.riot.system.StreamRDFWriter}, and are meant for bulk loaders rather than for
+ * further CoNLL-RDF components, which expect Turtle.
+ */
+enum OutputFormat {
+	/** pretty Turtle, with prefixes and subjects grouped, as <code>Model.write(out, "TTL")</code> (default) */
+	TURTLE("turtle"),
+	/** N-Triples, one triple per line */
+	NTRIPLES("ntriples"),
+	/** N-Quads, one quad per line, named after the <code>nif:Sentence</code> of the sentence */
+	NQUADS("nquads"),
+	/** streamed Turtle: the prefixes, then one block per run of triples with the same subject */
+	TURTLE_BLOCKS("turtle-blocks");
+
+	private static final Node NIF_SENTENCE =
+			NodeFactory.createURI("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#Sentence");
+
+	private final String option;
+
+	private OutputFormat(String option) {
+		this.option = option;
+	}
+
+	/**
+	 * @return the value of option <code>-output</code> for this format
+	 */
+	String getOption() {
+		return option;
+	}
+
+	/**
+	 * @param option
+	 * 			the value of option <code>-output</code>, case-insensitive
+	 * @throws ParseException
+	 * 			if there is no such format
+	 */
+	static OutputFormat forOption(String option) throws ParseException {
+		for (OutputFormat format : values())
+			if (format.option.equalsIgnoreCase(option.trim()))
+				return format;
+		throw new ParseException("Unknown output format " + option + ", expected turtle, ntriples, nquads or turtle-blocks");
+	}
+
+	/**
+	 * Write the triples of a sentence graph.
+	 */
+	void write(Model model, Writer out) throws IOException {
+		if (this == TURTLE) {
+			model.write(out, "TTL");
+			return;
+		}
+		Graph graph = model.getGraph();
+		StreamRDF stream = (this == TURTLE_BLOCKS) ? new WriterStreamRDFBlocks(out) : StreamRDFLib.writer(out);
+		stream.start();
+		if (this == TURTLE_BLOCKS)
+			StreamOps.sendPrefixesToStream(model, stream);
+		Node name = (this == NQUADS) ? sentenceNode(graph) : null;
+		for (Iterator<Triple> triples = graph.find(Node.ANY, Node.ANY, Node.ANY); triples.hasNext(); ) {
+			Triple t = triples.next();
+			if (name == null)
+				stream.triple(t);
+			else
+				stream.quad(new Quad(name, t));
+		}
+		stream.finish();
+	}
+
+	/**
+	 * @return the first <code>nif:Sentence</code> in the graph, null if there is none
+	 */
+	static Node sentenceNode(Graph graph) {
+		ExtendedIterator<Triple> sentences = graph.find(Node.ANY, RDF.Nodes.type, NIF_SENTENCE);
+		try {
+			return sentences.hasNext() ? sentences.next().getSubject() : null;
+		} finally {
+			sentences.close();
+		}
+	}
+}
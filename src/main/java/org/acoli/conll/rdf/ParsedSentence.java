@@ -0,0 +1,173 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+/**
+ * A sentence of CoNLL-RDF, available both as Turtle text and as a block of triples, each produced at most once.
+ *
+ * With lookahead and lookback, every sentence is loaded by several UpdateThreads: once as the current sentence and
+ * once more as context for each of its neighbours. The Turtle is parsed on first use, by whichever thread needs it
+ * first, into a block of triples (in document order) and its prefixes. All later uses copy the block into the target
+ * graph. The block is shared read-only; {@link Triple}s are immutable.
+ *
+ * Between components of a {@link CoNLLRDFManager} pipeline, sentences are handed over as triples (see
+ * {@link SentencePipe}), so they are neither serialized nor parsed. Their text is only produced if asked for.
+ *
+ * The modules of a {@link CoNLLRDFFormatter} query the same sentence as one model, built on first use and shared.
+ *
+ * A parse error is remembered and rethrown on every use, so every sentence with the broken one in its context fails,
+ * as it did when each thread parsed the text itself.
+ */
+class ParsedSentence {
+	private String text;
+	private List<String> comments = null;
+	private List<Triple> triples = null;
+	private Map<String, String> prefixes = null;
+	private Model model = null;
+	private RuntimeException error = null;
+
+	/**
+	 * @param text
+	 * 			the sentence as CoNLL-RDF Turtle, including comments
+	 */
+	ParsedSentence(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Take a snapshot of a sentence graph. Later changes to the model do not affect the sentence.
+	 * @param model
+	 * 			the sentence graph and its prefixes
+	 * @param comments
+	 * 			the comment lines preceding the sentence, each starting with <code>#</code>
+	 */
+	ParsedSentence(Model model, List<String> comments) {
+		this.text = null;
+		this.comments = Collections.unmodifiableList(new ArrayList<String>(comments));
+		this.triples = model.getGraph().find().toList();
+		this.prefixes = new LinkedHashMap<String, String>(model.getNsPrefixMap());
+	}
+
+	/**
+	 * @return the Turtle source of this sentence, serialized on first call if it was created from a graph
+	 */
+	synchronized String getText() {
+		if (text == null) {
+			StringWriter out = new StringWriter();
+			for (String comment : comments)
+				out.write(comment + "\n");
+			Model model = ModelFactory.createDefaultModel();
+			addTo(model);
+			model.write(out, "TTL");
+			text = out.toString();
+		}
+		return text;
+	}
+
+	/**
+	 * @return true if the Turtle source of this sentence is available without serializing it
+	 */
+	synchronized boolean hasText() {
+		return text != null;
+	}
+
+	/**
+	 * @return the comment lines of this sentence, trimmed, each starting with <code>#</code>
+	 */
+	synchronized List<String> getComments() {
+		if (comments == null) {
+			List<String> lines = new ArrayList<String>();
+			try {
+				BufferedReader in = new BufferedReader(new StringReader(text));
+				String line;
+				while((line=in.readLine())!=null) {
+					line=line.trim();
+					if(line.startsWith("#")) lines.add(line);
+				}
+			} catch (IOException e) {
+				// cannot happen on a StringReader
+				throw new IllegalStateException(e);
+			}
+			comments = Collections.unmodifiableList(lines);
+		}
+		return comments;
+	}
+
+	/**
+	 * Add the triples of this sentence to a model and its prefixes to the model's prefix mapping.
+	 * Equivalent to <code>model.read(new StringReader(getText()), null, "TTL")</code>.
+	 */
+	void addTo(Model model) {
+		parse();
+		model.setNsPrefixes(prefixes);
+		Graph graph = model.getGraph();
+		for (Triple t : triples)
+			graph.add(t);
+	}
+
+	/**
+	 * @return a model of this sentence, built on first call and returned to all later callers, which must not modify it.
+	 * 			Equivalent to <code>ModelFactory.createDefaultModel().read(new StringReader(getText()), null, "TTL")</code>.
+	 */
+	synchronized Model getModel() {
+		if (model == null) {
+			Model result = ModelFactory.createDefaultModel();
+			addTo(result);
+			model = result;
+		}
+		return model;
+	}
+
+	private synchronized void parse() {
+		if (error != null)
+			throw error;
+		if (triples != null)
+			return;
+		final List<Triple> parsedTriples = new ArrayList<Triple>();
+		final Map<String, String> parsedPrefixes = new LinkedHashMap<String, String>();
+		try {
+			parseTurtle(text, null, new StreamRDFBase() {
+				@Override
+				public void triple(Triple triple) {
+					parsedTriples.add(triple);
+				}
+
+				@Override
+				public void prefix(String prefix, String iri) {
+					parsedPrefixes.put(prefix, iri);
+				}
+			});
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		}
+		triples = parsedTriples;
+		prefixes = parsedPrefixes;
+	}
+
+	/**
+	 * Parse Turtle into a stream of triples and prefixes.
+	 * @param base
+	 * 			the base URI for relative IRIs, or null
+	 */
+	static void parseTurtle(String text, String base, StreamRDF destination) {
+		RDFParser.fromString(text).base(base).lang(Lang.TURTLE).parse(destination);
+	}
+}
@@ -0,0 +1,619 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The byte offsets of the sentences of a CoNLL or CoNLL-RDF file, so that single sentences or shards can be read without
+ * streaming the entire file.
+ *
+ * The index is kept next to the file, as <code>FILE.idx</code>, and rebuilt when the file has changed. It has a line
+ * per sentence with its ID, byte offset and length, the offset and length of the prefixes in effect (CoNLL-RDF
+ * sentences without <code>@prefix</code> lines of their own) and its <code># sent_id</code>, if any, separated by tabs.
+ * The ID is the local name of the nif:Sentence, e.g., <code>s123_0</code>, for CoNLL the one CoNLLStreamExtractor
+ * assigns. Sentences are split as by CoNLLStreamExtractor and the updater, respectively.
+ *
+ * Synopsis: <code>SentenceIndex FILE1[.. FILEn]</code> builds the index of each file.
+ */
+public class SentenceIndex implements Closeable {
+	static final Logger LOG = Logger.getLogger(SentenceIndex.class);
+	static final String SUFFIX = ".idx";
+	private static final String HEADER = "#SentenceIndex";
+	private static final Pattern SENTENCE = Pattern.compile("^(\\S+)\\s+a\\s+nif:Sentence\\b");
+	private static final Pattern SENT_ID = Pattern.compile("^#\\s*sent_id\\s*=\\s*(.*)$");
+
+	private final File file;
+	private final boolean rdf;
+	private int size = 0;
+	private long[] offsets = new long[1024];
+	private int[] lengths = new int[1024];
+	private long[] prefixOffsets = new long[1024];
+	private int[] prefixLengths = new int[1024];
+	// null where the ID is s<i>N</i>_0 for the <i>N</i>th sentence, to save memory on large files
+	private String[] ids = new String[1024];
+	private String[] sentIds = new String[1024];
+	// sentence number by ID and sent_id, built on the first lookup
+	private Map<String, Integer> names = null;
+	private RandomAccessFile data = null;
+
+	private SentenceIndex(File file, boolean rdf) {
+		this.file = file;
+		this.rdf = rdf;
+	}
+
+	/**
+	 * @return the index of the file, read from <code>FILE.idx</code> if it is up to date, built and written otherwise
+	 */
+	static SentenceIndex forFile(File file) throws IOException {
+		File indexFile = new File(file.getPath() + SUFFIX);
+		if (indexFile.isFile()) {
+			SentenceIndex index = read(file, indexFile);
+			if (index != null)
+				return index;
+			LOG.info("Sentence index " + indexFile + " is out of date");
+		}
+		SentenceIndex index = build(file);
+		try {
+			index.write(indexFile);
+		} catch (IOException e) {
+			LOG.warn("Could not write the sentence index " + indexFile + ": " + e.getMessage());
+		}
+		return index;
+	}
+
+	/**
+	 * @param path
+	 * 			a file, plain or gzip-compressed, or <code>System.in</code>
+	 * @param sentences
+	 * 			IDs, <code># sent_id</code>s, numbers or ranges of numbers (<code>FROM-TO</code>) of the sentences to read,
+	 * 			all sentences if null
+	 * @return the input, only the selected sentences in file order if any are given
+	 */
+	static BufferedReader openInput(String path, String[] sentences) throws IOException {
+		if (sentences == null)
+			return CompressedStreams.openInput(path);
+		if (path.equals("System.in"))
+			throw new IOException("Sentences can only be selected from a file, not from System.in");
+		SentenceIndex index = forFile(new File(path));
+		return index.open(index.select(Arrays.asList(sentences)));
+	}
+
+	/**
+	 * @return shard <code>i</code> of <code>n</code> of the file, see {@link #shard(int, int)}
+	 */
+	static BufferedReader openShard(String path, int i, int n) throws IOException {
+		if (path.equals("System.in"))
+			throw new IOException("A shard can only be read from a file, not from System.in");
+		return forFile(new File(path)).openShard(i, n);
+	}
+
+	boolean isRDF() {
+		return rdf;
+	}
+
+	/**
+	 * @return the number of sentences
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param n
+	 * 			the sentence number, from 1
+	 */
+	String getId(int n) {
+		return (ids[n - 1] != null) ? ids[n - 1] : "s" + n + "_0";
+	}
+
+	/**
+	 * @return the <code># sent_id</code> of sentence <code>n</code>, or null
+	 */
+	String getSentId(int n) {
+		return sentIds[n - 1];
+	}
+
+	long getOffset(int n) {
+		return offsets[n - 1];
+	}
+
+	int getLength(int n) {
+		return lengths[n - 1];
+	}
+
+	/**
+	 * @param selection
+	 * 			sentence IDs, <code># sent_id</code>s, numbers or ranges of numbers (<code>FROM-TO</code>)
+	 * @return the numbers of the selected sentences in file order, without duplicates
+	 * @throws IOException
+	 * 			if a sentence is not in the file
+	 */
+	int[] select(List<String> selection) throws IOException {
+		if (names == null) {
+			names = new HashMap<String, Integer>();
+			for (int i = 0; i < size; i++) {
+				if (ids[i] != null)
+					names.put(ids[i], i + 1);
+				if (sentIds[i] != null)
+					names.putIfAbsent(sentIds[i], i + 1);
+			}
+		}
+		TreeSet<Integer> result = new TreeSet<Integer>();
+		for (String name : selection) {
+			Integer n = names.get(name);
+			if (n == null && name.matches("s[0-9]+_0")) {
+				n = Integer.valueOf(name.substring(1, name.length() - 2));
+				if (n < 1 || n > size || ids[n - 1] != null)
+					n = null;
+			}
+			if (n != null) {
+				result.add(n);
+			} else if (name.matches("[0-9]+(-[0-9]+)?")) {
+				String[] range = name.split("-");
+				int from = Integer.parseInt(range[0]);
+				int to = Integer.parseInt(range[range.length - 1]);
+				if (from < 1 || to > size || from > to)
+					throw new IOException("Sentences " + name + " are not in " + file + ", which has " + size);
+				for (int i = from; i <= to; i++)
+					result.add(i);
+			} else {
+				throw new IOException("Sentence " + name + " is not in " + file);
+			}
+		}
+		int[] numbers = new int[result.size()];
+		int i = 0;
+		for (int n : result)
+			numbers[i++] = n;
+		return numbers;
+	}
+
+	/**
+	 * @return the text of sentence <code>n</code>, preceded by the prefixes in effect
+	 */
+	String read(int n) throws IOException {
+		return new String(readBytes(n), Charset.defaultCharset());
+	}
+
+	private synchronized byte[] readBytes(int n) throws IOException {
+		if (data == null)
+			data = new RandomAccessFile(file, "r");
+		ByteArrayOutputStream result = new ByteArrayOutputStream(lengths[n - 1] + prefixLengths[n - 1] + 1);
+		if (prefixOffsets[n - 1] >= 0)
+			result.write(readBytes(prefixOffsets[n - 1], prefixLengths[n - 1]));
+		byte[] sentence = readBytes(offsets[n - 1], lengths[n - 1]);
+		result.write(sentence);
+		// the last sentence of a file may lack a line break
+		if (sentence.length > 0 && sentence[sentence.length - 1] != '\n' && sentence[sentence.length - 1] != '\r')
+			result.write('\n');
+		return result.toByteArray();
+	}
+
+	private byte[] readBytes(long offset, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		data.seek(offset);
+		data.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Shard <code>i</code> of <code>n</code> holds the sentences that start in the <code>i</code>th of <code>n</code>
+	 * equal byte ranges of the file. The shards are cut before the first line of a sentence and together cover the
+	 * entire file, so they can be processed independently, and their output concatenated in order.
+	 * @param i
+	 * 			1 to <code>n</code>
+	 * @return the numbers of the first and the last sentence of the shard, the latter is smaller if it has none
+	 */
+	int[] shard(int i, int n) throws IOException {
+		if (n < 1 || i < 1 || i > n)
+			throw new IOException("Invalid shard " + i + " of " + n);
+		return new int[] { shardStart(i - 1, n), shardStart(i, n) - 1 };
+	}
+
+	// the number of the first sentence in the i-th n-th of the file, or after it, size + 1 if there is none
+	private int shardStart(int i, int n) {
+		if (i == 0)
+			return 1;
+		long offset = file.length() * i / n;
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (offsets[mid] < offset)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return i == n ? size + 1 : low + 1;
+	}
+
+	/**
+	 * @return the bytes of shard <code>i</code> of <code>n</code>, see {@link #shard(int, int)}, read as they are
+	 * 			needed. A CoNLL-RDF shard starts with the prefixes in effect for its first sentence.
+	 */
+	BufferedReader openShard(int i, int n) throws IOException {
+		int[] shard = shard(i, n);
+		long start = i == 1 ? 0 : shard[0] > size ? file.length() : offsets[shard[0] - 1];
+		long end = i == n ? file.length() : shard[1] + 1 > size ? file.length() : offsets[shard[1]];
+		byte[] prefix = new byte[0];
+		if (i > 1 && shard[0] <= shard[1] && prefixOffsets[shard[0] - 1] >= 0) {
+			prefix = new byte[prefixLengths[shard[0] - 1]];
+			try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+				in.seek(prefixOffsets[shard[0] - 1]);
+				in.readFully(prefix);
+			}
+		}
+		final FileInputStream in = new FileInputStream(file);
+		in.getChannel().position(start);
+		InputStream range = new FilterInputStream(in) {
+			private long remaining = end - start;
+
+			@Override
+			public int read() throws IOException {
+				if (remaining <= 0)
+					return -1;
+				remaining--;
+				return super.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (remaining <= 0)
+					return -1;
+				int read = super.read(b, off, (int) Math.min(len, remaining));
+				if (read > 0)
+					remaining -= read;
+				return read;
+			}
+		};
+		return new BufferedReader(new InputStreamReader(new SequenceInputStream(new ByteArrayInputStream(prefix), range)));
+	}
+
+	/**
+	 * @return the selected sentences one after the other, read as they are needed
+	 */
+	BufferedReader open(final int[] numbers) {
+		Enumeration<InputStream> sentences = new Enumeration<InputStream>() {
+			private int i = 0;
+
+			@Override
+			public boolean hasMoreElements() {
+				return i < numbers.length;
+			}
+
+			@Override
+			public InputStream nextElement() {
+				if (i >= numbers.length)
+					throw new NoSuchElementException();
+				try {
+					return new ByteArrayInputStream(readBytes(numbers[i++]));
+				} catch (IOException e) {
+					// SequenceInputStream does not expect an exception here, report it on the next read
+					return new InputStream() {
+						@Override
+						public int read() throws IOException {
+							throw e;
+						}
+					};
+				}
+			}
+		};
+		return new BufferedReader(new InputStreamReader(new SequenceInputStream(sentences)) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				SentenceIndex.this.close();
+			}
+		});
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (data != null)
+			data.close();
+		data = null;
+	}
+
+	private void add(String id, long offset, long length, long prefixOffset, long prefixLength, String sentId)
+			throws IOException {
+		if (length > Integer.MAX_VALUE || prefixLength > Integer.MAX_VALUE)
+			throw new IOException("Sentence at offset " + offset + " of " + file + " is too long to be indexed");
+		if (size == offsets.length) {
+			int capacity = 2 * size;
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			prefixOffsets = Arrays.copyOf(prefixOffsets, capacity);
+			prefixLengths = Arrays.copyOf(prefixLengths, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+			sentIds = Arrays.copyOf(sentIds, capacity);
+		}
+		offsets[size] = offset;
+		lengths[size] = (int) length;
+		prefixOffsets[size] = prefixOffset;
+		prefixLengths[size] = (int) prefixLength;
+		size++;
+		ids[size - 1] = id.equals("s" + size + "_0") ? null : id;
+		sentIds[size - 1] = sentId;
+	}
+
+	/**
+	 * Index a file, as CoNLL-RDF if its first line that is neither blank nor a comment starts with <code>@</code>,
+	 * as CoNLL otherwise.
+	 */
+	static SentenceIndex build(File file) throws IOException {
+		if (CompressedStreams.isCompressed(file))
+			throw new IOException("Cannot index the compressed file " + file + ", decompress it first");
+		boolean rdf = false;
+		try (LineScanner lines = new LineScanner(new FileInputStream(file))) {
+			for (String line = lines.next(); line != null; line = lines.next()) {
+				if (Format2RDF.isRow(line)) {
+					rdf = line.trim().startsWith("@");
+					break;
+				}
+			}
+		}
+		SentenceIndex index = new SentenceIndex(file, rdf);
+		try (LineScanner lines = new LineScanner(new FileInputStream(file))) {
+			if (rdf)
+				index.buildRDF(lines);
+			else
+				index.buildCoNLL(lines);
+		}
+		LOG.info("Indexed " + index.size + " sentences of " + file);
+		return index;
+	}
+
+	/**
+	 * Sentences as split and numbered by CoNLLStreamExtractor: a block of lines that contains a row, with the empty
+	 * line after it and any blank lines and comment blocks before it.
+	 */
+	private void buildCoNLL(LineScanner lines) throws IOException {
+		long start = 0;
+		boolean tokens = false;
+		String sentId = null;
+		for (String line = lines.next(); line != null; line = lines.next()) {
+			String normalized = Format2RDF.normalizeLine(line);
+			if (normalized == null)
+				continue;
+			if (normalized.isEmpty()) {
+				if (tokens) {
+					add("s" + (size + 1) + "_0", start, lines.end - start, -1, 0, sentId);
+					start = lines.end;
+					sentId = null;
+				}
+				tokens = false;
+				continue;
+			}
+			if (Format2RDF.isRow(normalized))
+				tokens = true;
+			Matcher m = SENT_ID.matcher(normalized);
+			if (sentId == null && m.matches())
+				sentId = m.group(1).trim();
+		}
+		if (tokens)
+			add("s" + (size + 1) + "_0", start, lines.end - start, -1, 0, sentId);
+	}
+
+	/**
+	 * Sentences as split by the updater, see {@link TurtleSentenceFramer}: a new one starts with the first
+	 * <code>@</code> or <code>#</code> line after a line that is neither blank nor starts with one of these.
+	 * Only sentences that declare a nif:Sentence are indexed.
+	 */
+	private void buildRDF(LineScanner lines) throws IOException {
+		Block block = new Block(0);
+		long prefixOffset = -1;
+		long prefixLength = 0;
+		boolean lastLineHeader = false;
+		for (String line = lines.next(); line != null; line = lines.next()) {
+			line = line.trim();
+			boolean header = line.startsWith("@") || line.startsWith("#");
+			if (!block.blank && header && !lastLineHeader) {
+				if (block.hasPrefix) {
+					prefixOffset = block.prefixStart;
+					prefixLength = block.prefixEnd - block.prefixStart;
+				}
+				if (block.id != null)
+					add(block.id, block.start, lines.start - block.start, block.hasPrefix ? -1 : prefixOffset,
+							block.hasPrefix ? 0 : prefixLength, block.sentId);
+				block = new Block(lines.start);
+			}
+			block.add(line, lines.start, lines.end);
+			lastLineHeader = header;
+		}
+		if (block.hasPrefix) {
+			prefixOffset = block.prefixStart;
+			prefixLength = block.prefixEnd - block.prefixStart;
+		}
+		if (block.id != null)
+			add(block.id, block.start, lines.end - block.start, block.hasPrefix ? -1 : prefixOffset,
+					block.hasPrefix ? 0 : prefixLength, block.sentId);
+	}
+
+	/** a CoNLL-RDF sentence being indexed */
+	private static final class Block {
+		final long start;
+		boolean blank = true;
+		boolean hasPrefix = false;
+		long prefixStart = -1;
+		long prefixEnd = -1;
+		String id = null;
+		String sentId = null;
+
+		Block(long start) {
+			this.start = start;
+		}
+
+		void add(String line, long lineStart, long lineEnd) {
+			if (line.isEmpty())
+				return;
+			blank = false;
+			if (line.contains("@prefix")) {
+				hasPrefix = true;
+				if (line.startsWith("@prefix")) {
+					if (prefixStart < 0)
+						prefixStart = lineStart;
+					prefixEnd = lineEnd;
+				}
+			}
+			if (id == null && line.contains("nif:Sentence")) {
+				Matcher m = SENTENCE.matcher(line);
+				if (m.find()) {
+					String subject = m.group(1);
+					id = subject.substring(Math.max(subject.lastIndexOf(':'), subject.lastIndexOf('#')) + 1)
+							.replaceFirst(">$", "");
+				}
+			}
+			if (sentId == null && line.startsWith("#")) {
+				Matcher m = SENT_ID.matcher(line);
+				if (m.matches())
+					sentId = m.group(1).trim();
+			}
+		}
+	}
+
+	private void write(File indexFile) throws IOException {
+		File dir = indexFile.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(indexFile.getName(), ".tmp", dir);
+		try {
+			try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(tmp.toPath()))) {
+				out.print(HEADER + "\t" + file.length() + "\t" + file.lastModified() + "\t" + (rdf ? "rdf" : "conll") + "\n");
+				for (int n = 1; n <= size; n++) {
+					String sentId = getSentId(n);
+					out.print(getId(n) + "\t" + getOffset(n) + "\t" + getLength(n) + "\t" + prefixOffsets[n - 1] + "\t"
+							+ prefixLengths[n - 1] + "\t" + (sentId == null ? "" : sentId.replaceAll("[\t\r\n]", " ")) + "\n");
+				}
+				if (out.checkError())
+					throw new IOException("Failed to write " + tmp);
+			}
+			Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	/**
+	 * @return the index, or null if it is out of date or not an index
+	 */
+	private static SentenceIndex read(File file, File indexFile) throws IOException {
+		try (BufferedReader in = Files.newBufferedReader(indexFile.toPath())) {
+			String[] header = String.valueOf(in.readLine()).split("\t");
+			if (header.length != 4 || !header[0].equals(HEADER) || !header[1].equals("" + file.length())
+					|| !header[2].equals("" + file.lastModified()))
+				return null;
+			SentenceIndex index = new SentenceIndex(file, header[3].equals("rdf"));
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] fields = line.split("\t", -1);
+				if (fields.length != 6)
+					throw new IOException("Invalid sentence index " + indexFile + ", delete it to rebuild it");
+				index.add(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+						Long.parseLong(fields[4]), fields[5].isEmpty() ? null : fields[5]);
+			}
+			return index;
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid sentence index " + indexFile + ", delete it to rebuild it", e);
+		}
+	}
+
+	/**
+	 * Reads lines like BufferedReader.readLine(), in the platform charset, and keeps track of their byte offsets.
+	 */
+	private static final class LineScanner implements Closeable {
+		private final InputStream in;
+		private final Charset charset = Charset.defaultCharset();
+		private final byte[] buffer = new byte[1 << 16];
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		private int pos = 0;
+		private int limit = 0;
+		// file offset of buffer[0]
+		private long bufferOffset = 0;
+		/** byte offset of the last line read */
+		long start = 0;
+		/** byte offset after the line break of the last line read */
+		long end = 0;
+
+		LineScanner(InputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * @return the next line without its line break, or null at the end of the file
+		 */
+		String next() throws IOException {
+			start = end;
+			line.reset();
+			while (pos < limit || fill()) {
+				int i = pos;
+				while (i < limit && buffer[i] != '\n' && buffer[i] != '\r')
+					i++;
+				line.write(buffer, pos, i - pos);
+				if (i == limit) {
+					pos = limit;
+					continue;
+				}
+				byte b = buffer[i];
+				pos = i + 1;
+				if (b == '\r' && (pos < limit || fill()) && buffer[pos] == '\n')
+					pos++;
+				end = bufferOffset + pos;
+				return line.toString(charset.name());
+			}
+			end = bufferOffset + pos;
+			return (end == start) ? null : line.toString(charset.name());
+		}
+
+		private boolean fill() throws IOException {
+			bufferOffset += limit;
+			pos = 0;
+			limit = 0;
+			int n;
+			while ((n = in.read(buffer)) == 0);
+			if (n > 0)
+				limit = n;
+			return n > 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/** @param args FILE1[.. FILEn] */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("synopsis: SentenceIndex FILE1[.. FILEn]\n"
+					+ "\twrites the byte offsets of the sentences of each CoNLL or CoNLL-RDF FILE to FILE" + SUFFIX
+					+ ", for -sentences and -shard in CoNLLStreamExtractor, CoNLLRDFUpdater and CoNLLRDFFormatter");
+			System.exit(1);
+		}
+		for (String arg : args) {
+			File file = new File(arg);
+			SentenceIndex index = build(file);
+			index.write(new File(file.getPath() + SUFFIX));
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands sentences from one {@link CoNLLRDFComponent} to the next within the same JVM, as a replacement for
+ * a PipedOutputStream/PipedInputStream pair. Sentences travel as {@link ParsedSentence}s, so the receiving component
+ * can load their triples directly instead of parsing the Turtle written by the sending component.
+ *
+ * The pipe holds a bounded number of sentences: {@link #put(ParsedSentence)} blocks while it is full and
+ * {@link #take()} blocks while it is empty. The sender {@link #close()}s the pipe after its last sentence.
+ */
+class SentencePipe implements BoundedPipe {
+	static final int DEFAULT_CAPACITY = 16;
+	// how often a waiting component checks whether the pipe was aborted
+	static final long ABORT_CHECK_MILLIS = 100;
+
+	// end of stream marker, never handed out
+	private static final ParsedSentence END = new ParsedSentence("");
+
+	private final BlockingQueue<ParsedSentence> queue;
+	// set on the receiving side once END has been taken
+	private boolean closed = false;
+	private volatile boolean aborted = false;
+
+	SentencePipe() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 * 			maximum number of sentences waiting in the pipe, at least 1
+	 */
+	SentencePipe(int capacity) {
+		queue = new LinkedBlockingQueue<ParsedSentence>(capacity);
+	}
+
+	/**
+	 * Send a sentence, wait while the pipe is full.
+	 * @throws IOException if the thread was interrupted or the pipe was aborted
+	 */
+	void put(ParsedSentence sentence) throws IOException {
+		try {
+			while (!queue.offer(sentence, ABORT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (aborted)
+					throw new IOException("The next component failed");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the next component", e);
+		}
+		if (aborted)
+			throw new IOException("The next component failed");
+	}
+
+	/**
+	 * Signal the end of the stream to the receiving component.
+	 * @throws IOException if the thread was interrupted or the pipe was aborted
+	 */
+	void close() throws IOException {
+		put(END);
+	}
+
+	/**
+	 * Receive the next sentence, wait while the pipe is empty.
+	 * @return the sentence, or null if the pipe was closed by the sender
+	 * @throws IOException if the thread was interrupted or the pipe was aborted
+	 */
+	ParsedSentence take() throws IOException {
+		if (closed)
+			return null;
+		ParsedSentence sentence;
+		try {
+			while ((sentence = queue.poll(ABORT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+				if (aborted)
+					throw new IOException("The previous component failed");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the previous component", e);
+		}
+		if (sentence == END) {
+			closed = true;
+			return null;
+		}
+		return sentence;
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	@Override
+	public void abort() {
+		aborted = true;
+	}
+}
@@ -0,0 +1,144 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+
+/**
+ * Restores the input order of sentences that are processed in parallel.
+ *
+ * A single reading thread reserves one slot per sentence, in input order, and
+ * receives a sequence number for it. Worker threads complete their slot by
+ * sequence number in arbitrary order, which is O(1). The reading thread then
+ * emits completed sentences strictly in the order they were reserved.
+ *
+ * The buffer is a ring of fixed capacity: at most <code>capacity</code>
+ * sentences can be in flight (reserved, but not yet emitted). This bounds the
+ * memory held by sentences waiting for a slow predecessor and serves as
+ * backpressure for the reading thread, see {@link #isFull()}.
+ *
+ * @param <T> the type of the processed sentences
+ */
+class SentenceReorderBuffer<T> {
+	private final Object[] slots;
+	private final Throwable[] errors;
+	private final boolean[] done;
+	/** sequence number of the next sentence to be emitted */
+	private long head = 0;
+	/** sequence number of the next slot to be reserved */
+	private long tail = 0;
+
+	/**
+	 * @param capacity
+	 * 			maximum number of sentences in flight, at least 1
+	 */
+	SentenceReorderBuffer(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+		slots = new Object[capacity];
+		errors = new Throwable[capacity];
+		done = new boolean[capacity];
+	}
+
+	int getCapacity() {
+		return slots.length;
+	}
+
+	/** number of sentences reserved but not yet emitted */
+	synchronized int size() {
+		return (int) (tail - head);
+	}
+
+	synchronized boolean isEmpty() {
+		return tail == head;
+	}
+
+	synchronized boolean isFull() {
+		return tail - head >= slots.length;
+	}
+
+	/**
+	 * Reserve the next slot in input order. Only to be called by the reading thread.
+	 * @return the sequence number to complete the slot with
+	 * @throws IllegalStateException if the buffer is full
+	 */
+	synchronized long reserve() {
+		if (isFull())
+			throw new IllegalStateException("No free slot, " + size() + " sentences in flight");
+		return tail++;
+	}
+
+	/**
+	 * Hand in the result for a reserved slot. May be called by any thread.
+	 * @param seq
+	 * 			the sequence number returned by {@link #reserve()}
+	 * @param sentence
+	 * 			the processed sentence
+	 */
+	synchronized void complete(long seq, T sentence) {
+		int i = index(seq);
+		slots[i] = sentence;
+		done[i] = true;
+		if (seq == head)
+			notifyAll();
+	}
+
+	/**
+	 * Mark a reserved slot as failed. The error is rethrown when the slot is emitted.
+	 */
+	synchronized void fail(long seq, Throwable error) {
+		int i = index(seq);
+		errors[i] = error;
+		done[i] = true;
+		if (seq == head)
+			notifyAll();
+	}
+
+	/**
+	 * Emit the next sentence in input order, if it has been completed already.
+	 * @return the sentence, or null if the buffer is empty or the next sentence is still in progress
+	 * @throws IOException if processing of the next sentence failed
+	 */
+	synchronized T poll() throws IOException {
+		if (isEmpty() || !done[index(head)])
+			return null;
+		return emit();
+	}
+
+	/**
+	 * Emit the next sentence in input order, waiting for it to be completed.
+	 * @return the sentence, or null if the buffer is empty
+	 * @throws IOException if processing of the next sentence failed or the thread was interrupted
+	 */
+	synchronized T take() throws IOException {
+		if (isEmpty())
+			return null;
+		while (!done[index(head)]) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for sentence No. " + head, e);
+			}
+		}
+		return emit();
+	}
+
+	private T emit() throws IOException {
+		int i = index(head);
+		@SuppressWarnings("unchecked")
+		T sentence = (T) slots[i];
+		Throwable error = errors[i];
+		slots[i] = null;
+		errors[i] = null;
+		done[i] = false;
+		head++;
+		if (error != null)
+			throw new IOException("Failed to process sentence No. " + (head - 1), error);
+		return sentence;
+	}
+
+	private int index(long seq) {
+		if (seq < head || seq >= tail)
+			throw new IllegalArgumentException("Sequence number " + seq + " is not in flight");
+		return (int) (seq % slots.length);
+	}
+}
@@ -0,0 +1,161 @@
+package org.acoli.conll.rdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.apache.log4j.Logger;
+
+/**
+ * A TDB2 dataset on disk that CoNLLRDFUpdater adds the updated sentences to, see option <code>-store</code>.
+ * Each sentence becomes a named graph, named after its <code>nif:Sentence</code>. The sentences of several
+ * UpdateThreads are collected and written in batches, one write transaction per batch, as a transaction per
+ * sentence would spend most of its time on commits.
+ *
+ * After the stream, the whole corpus can be queried with {@link #main(String[])}, without holding it in memory
+ * or converting it again. Sentences are added to what is already in the store; a sentence whose graph already
+ * exists is merged into it, with a warning. Sentences without a <code>nif:Sentence</code> are named per run, so
+ * they never merge.
+ */
+final class SentenceStore implements AutoCloseable {
+	static final Logger LOG = Logger.getLogger(SentenceStore.class);
+	/** the number of sentences per write transaction */
+	static final int BATCH_SIZE = 1000;
+	private static final String UNNAMED = "https://github.com/acoli-repo/conll-rdf/sentence";
+
+	private final Dataset dataset;
+	private final int batchSize;
+	/** the prefix of the names of unnamed sentences, unique to this run */
+	private final String unnamed = UNNAMED + "/" + UUID.randomUUID() + "/";
+	private final List<Quad> batch = new ArrayList<Quad>();
+	private final Set<Node> batchGraphs = new LinkedHashSet<Node>();
+	private int batchSentences = 0;
+	private long sentences = 0;
+
+	/**
+	 * @param dir
+	 * 			the directory of the TDB2 dataset, created if it does not exist
+	 */
+	SentenceStore(String dir) throws IOException {
+		this(dir, BATCH_SIZE);
+	}
+
+	SentenceStore(String dir, int batchSize) throws IOException {
+		File file = new File(dir);
+		if (!file.isDirectory() && !file.mkdirs())
+			throw new IOException("Error: Failed to create given -store DIRECTORY: " + dir);
+		dataset = TDB2Factory.connectDataset(file.getPath());
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Add the triples of a sentence as a named graph. They are copied, the model can be reused.
+	 * Writes the batch if it is full.
+	 */
+	synchronized void add(Model sentence) {
+		Graph graph = sentence.getGraph();
+		Node name = OutputFormat.sentenceNode(graph);
+		if (name == null) {
+			name = NodeFactory.createURI(unnamed + sentences);
+			LOG.warn("No nif:Sentence found, storing sentence as " + name);
+		}
+		if (!batchGraphs.add(name))
+			LOG.warn("Sentence graph " + name + " already exists, merging the sentence into it");
+		for (Iterator<Triple> triples = graph.find(Node.ANY, Node.ANY, Node.ANY); triples.hasNext(); )
+			batch.add(new Quad(name, triples.next()));
+		sentences++;
+		if (++batchSentences >= batchSize)
+			flush();
+	}
+
+	/**
+	 * Write the sentences added so far in a single transaction.
+	 */
+	synchronized void flush() {
+		if (batchSentences == 0)
+			return;
+		final DatasetGraph dsg = dataset.asDatasetGraph();
+		Txn.executeWrite(dsg, () -> {
+			for (Node name : batchGraphs)
+				if (dsg.containsGraph(name))
+					LOG.warn("Sentence graph " + name + " already exists, merging the sentence into it");
+			for (Quad quad : batch)
+				dsg.add(quad);
+		});
+		LOG.debug("Stored " + batchSentences + " sentences, " + sentences + " in total");
+		batch.clear();
+		batchGraphs.clear();
+		batchSentences = 0;
+	}
+
+	/**
+	 * @return the number of sentences added to this store since it was opened
+	 */
+	synchronized long size() {
+		return sentences;
+	}
+
+	/**
+	 * Run a SELECT query on the union of all sentence graphs and write the result as TSV.
+	 */
+	void select(Query query, OutputStream out) {
+		Txn.executeRead(dataset, () -> {
+			try (QueryExecution qexec = QueryExecutionFactory.create(query, dataset)) {
+				qexec.getContext().set(TDB2.symUnionDefaultGraph, true);
+				ResultSetFormatter.outputAsTSV(out, qexec.execSelect());
+			}
+		});
+	}
+
+	/**
+	 * Writes the last batch.
+	 */
+	@Override
+	public synchronized void close() {
+		flush();
+		// release the location, so the store can be opened again in this JVM
+		TDBInternal.expel(dataset.asDatasetGraph());
+	}
+
+	/**
+	 * Query a store written by <code>CoNLLRDFUpdater -store DIR</code>.
+	 * Synopsis: <code>SentenceStore DIR SPARQL_SELECT</code>, the query as a file, URL or literal.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("synopsis: SentenceStore DIR SPARQL_SELECT\n"
+					+ "\tDIR            TDB2 dataset written by CoNLLRDFUpdater -store DIR\n"
+					+ "\tSPARQL_SELECT  file, URL or literal SELECT query, run on the union of all sentences, result as TSV");
+			System.exit(1);
+			return;
+		}
+		if (!new File(args[0]).isDirectory())
+			throw new IOException("No store found at " + args[0]);
+		Query query = CoNLLRDFCommandLine.readSparqlSelect(args[1]);
+		try (SentenceStore store = new SentenceStore(args[0])) {
+			store.select(query, System.out);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.acoli.conll.rdf.CoNLLRDFFormatter.Module;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs an entire CoNLLRDFManager pipeline on several threads, rather than each component on a thread of its own.
+ *
+ * The CoNLL input is cut into shards of consecutive sentences. Each worker owns a copy of the pipeline and runs all
+ * of its components on a shard, one after the other, so the work is spread over as many cores as there are workers,
+ * whatever the number of components. The output of the shards is written in input order, and the extractor numbers
+ * the sentences of each shard as it would in a single stream, so the output is the same as that of the streaming
+ * pipeline, except that a deduplicated prefix block is repeated once per shard.
+ *
+ * Only pipelines starting with a CoNLLStreamExtractor whose components all
+ * {@link CoNLLRDFComponent#supportsSharding() support sharding} can be run this way.
+ */
+final class ShardedPipeline implements Runnable {
+	static final Logger LOG = Logger.getLogger(ShardedPipeline.class);
+	static final int DEFAULT_SHARD_SIZE = 100;
+
+	private final BufferedReader input;
+	private final PrintStream output;
+	private final int shardSize;
+	private final boolean graphTransport;
+	private final int workers;
+	private int firstSentence = 1;
+	// copies of the pipeline not in use by a worker
+	private final BlockingQueue<List<CoNLLRDFComponent>> idle;
+
+	/**
+	 * @param copies
+	 * 			one copy of the pipeline per worker, each with its own components
+	 * @param shardSize
+	 * 			number of sentences per shard
+	 * @param graphTransport
+	 * 			hand sentence graphs from one component to the next where both support it, see {@link SentencePipe}
+	 */
+	ShardedPipeline(List<List<CoNLLRDFComponent>> copies, BufferedReader input, PrintStream output, int shardSize,
+			boolean graphTransport) {
+		this.input = input;
+		this.output = output;
+		this.shardSize = shardSize;
+		this.graphTransport = graphTransport;
+		workers = copies.size();
+		idle = new ArrayBlockingQueue<List<CoNLLRDFComponent>>(workers, false, copies);
+	}
+
+	/**
+	 * @param firstSentence
+	 * 			the number in the URI of the first sentence of the input, if it is a shard of a larger file itself
+	 */
+	void setFirstSentence(int firstSentence) {
+		this.firstSentence = firstSentence;
+	}
+
+	/**
+	 * @return true if a pipeline of these components can be run on shards
+	 */
+	static boolean supports(List<CoNLLRDFComponent> components) {
+		if (components.isEmpty() || !(components.get(0) instanceof CoNLLStreamExtractor))
+			return false;
+		for (CoNLLRDFComponent component : components)
+			if (!component.supportsSharding())
+				return false;
+		return true;
+	}
+
+	@Override
+	public void run() {
+		try {
+			process();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Read the input shard by shard, and write the processed shards in input order.
+	 * At most two shards per worker are in process or waiting for output.
+	 */
+	void process() throws IOException {
+		LOG.info("Running the pipeline on " + workers + " workers, " + shardSize + " sentences per shard.");
+		ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+			Thread t = new Thread(r, "ShardWorker");
+			t.setDaemon(true);
+			return t;
+		});
+		SentenceReorderBuffer<byte[]> results = new SentenceReorderBuffer<byte[]>(2 * workers);
+		try {
+			StringBuilder shard = new StringBuilder();
+			// sentences are split and counted exactly as by CoNLLStreamExtractor.processSentenceStream():
+			// a block of lines counts if one of them is a row, cf. CoNLLStreamExtractor.hasTokens()
+			boolean block = false;
+			boolean tokens = false;
+			int firstSentence = this.firstSentence;
+			int sentences = 0;
+			// once full, the shard is cut before the next block with a row, and the comments at the start of that
+			// block go with it into the next shard, as they belong to its sentence. A block of comments only stays
+			// with the sentence it follows, as in the output of the streaming pipeline, so the lines of a block are
+			// held back until it is clear which one it is.
+			boolean full = false;
+			StringBuilder pending = new StringBuilder();
+			for (String line = input.readLine(); line != null; line = input.readLine()) {
+				String normalized = Format2RDF.normalizeLine(line);
+				if (full && normalized != null && Format2RDF.isRow(normalized)) {
+					submit(pool, results, shard.toString(), firstSentence);
+					firstSentence += sentences;
+					sentences = 0;
+					shard.setLength(0);
+					full = false;
+				} else if (full && normalized != null && normalized.isEmpty()) {
+					shard.append(pending);
+					pending.setLength(0);
+				}
+				if (full) {
+					pending.append(line).append('\n');
+				} else {
+					shard.append(pending).append(line).append('\n');
+					pending.setLength(0);
+				}
+				if (normalized == null)
+					continue;
+				if (!normalized.isEmpty()) {
+					block = true;
+					tokens |= Format2RDF.isRow(normalized);
+					continue;
+				}
+				if (!block)
+					continue;
+				if (tokens)
+					sentences++;
+				block = false;
+				tokens = false;
+				if (sentences >= shardSize)
+					full = true;
+			}
+			shard.append(pending);
+			if (shard.length() > 0)
+				submit(pool, results, shard.toString(), firstSentence);
+			for (byte[] result = results.take(); result != null; result = results.take())
+				output.write(result);
+		} finally {
+			pool.shutdownNow();
+		}
+		output.close();
+	}
+
+	/**
+	 * Hand a shard over to the workers, and write the shards that are done. Blocks while all slots are in use.
+	 */
+	private void submit(ExecutorService pool, final SentenceReorderBuffer<byte[]> results, final String shard,
+			final int firstSentence) throws IOException {
+		while (results.isFull())
+			output.write(results.take());
+		final long seq = results.reserve();
+		pool.execute(() -> {
+			List<CoNLLRDFComponent> components = null;
+			try {
+				components = idle.take();
+				results.complete(seq, process(components, shard, firstSentence));
+			} catch (Exception | Error e) {
+				results.fail(seq, e);
+			} finally {
+				if (components != null)
+					idle.add(components);
+			}
+		});
+		for (byte[] result = results.poll(); result != null; result = results.poll())
+			output.write(result);
+	}
+
+	/**
+	 * Run all components on a shard, one after the other.
+	 * @return the output of the last component
+	 */
+	private byte[] process(List<CoNLLRDFComponent> components, String shard, int firstSentence) throws IOException {
+		((CoNLLStreamExtractor) components.get(0)).setFirstSentence(firstSentence);
+		BufferedReader nextInput = new BufferedReader(new StringReader(shard));
+		SentencePipe nextSentenceInput = null;
+		ByteArrayOutputStream result = new ByteArrayOutputStream(2 * shard.length());
+		for (int i = 0; i < components.size(); i++) {
+			CoNLLRDFComponent component = components.get(i);
+			component.setSentenceInput(nextSentenceInput);
+			component.setInputStream(nextInput);
+			component.setSentenceOutput(null);
+			nextSentenceInput = null;
+			ByteArrayOutputStream text = null;
+			if (i == components.size() - 1) {
+				PrintStream out = new PrintStream(result);
+				component.setOutputStream(out);
+				if (component instanceof CoNLLRDFFormatter)
+					for (Module m : ((CoNLLRDFFormatter) component).getModules())
+						m.setOutputStream(out);
+			} else if (graphTransport && component.producesSentenceOutput() && components.get(i+1).acceptsSentenceInput()) {
+				// holds the entire shard, as the next component only starts once this one is done
+				nextSentenceInput = new SentencePipe(Integer.MAX_VALUE);
+				component.setSentenceOutput(nextSentenceInput);
+			} else {
+				text = new ByteArrayOutputStream(2 * shard.length());
+				component.setOutputStream(new PrintStream(text));
+			}
+			component.processSentenceStream();
+			component.getOutputStream().flush();
+			if (text != null)
+				nextInput = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text.toByteArray())));
+		}
+		return result.toByteArray();
+	}
+}
@@ -0,0 +1,191 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands text from one {@link CoNLLRDFComponent} to the next within the same JVM, where a {@link SentencePipe} does not
+ * apply, as a replacement for a PipedOutputStream/PipedInputStream pair. Those have a buffer of 1 KB and tie the pipe
+ * to the threads that used it last.
+ *
+ * The text is handed over in chunks of about one sentence: a chunk ends at each flush of the {@link #output()} and
+ * whenever a write ends with an empty line, which the components do at the end of each sentence. The pipe holds a
+ * bounded number of chunks, the sending component blocks while it is full.
+ */
+final class TextPipe implements BoundedPipe {
+	// a chunk is handed over at this size at the latest
+	static final int MAX_CHUNK = 1 << 16;
+
+	// end of stream marker
+	private static final byte[] END = new byte[0];
+
+	private final BlockingQueue<byte[]> queue;
+	private final PrintStream output = new PrintStream(new Sender());
+	private final BufferedReader input = new BufferedReader(new InputStreamReader(new Receiver()));
+	private volatile boolean aborted = false;
+
+	TextPipe() {
+		this(SentencePipe.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 * 			maximum number of chunks waiting in the pipe, at least 1
+	 */
+	TextPipe(int capacity) {
+		queue = new ArrayBlockingQueue<byte[]>(capacity);
+	}
+
+	/**
+	 * @return the sending side, for {@link CoNLLRDFComponent#setOutputStream(PrintStream)}
+	 */
+	PrintStream output() {
+		return output;
+	}
+
+	/**
+	 * @return the receiving side, for {@link CoNLLRDFComponent#setInputStream(BufferedReader)}
+	 */
+	BufferedReader input() {
+		return input;
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	@Override
+	public void abort() {
+		aborted = true;
+	}
+
+	private final class Sender extends OutputStream {
+		private byte[] chunk = new byte[1024];
+		private int size = 0;
+		private boolean closed = false;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed)
+				throw new IOException("Pipe closed");
+			if (size + len > chunk.length)
+				chunk = Arrays.copyOf(chunk, Math.max(2 * chunk.length, size + len));
+			System.arraycopy(b, off, chunk, size, len);
+			size += len;
+			if (size >= MAX_CHUNK || (size >= 2 && chunk[size - 1] == '\n' && chunk[size - 2] == '\n'))
+				send();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			send();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			send();
+			put(END);
+			closed = true;
+		}
+
+		private void send() throws IOException {
+			if (size == 0)
+				return;
+			put(Arrays.copyOf(chunk, size));
+			size = 0;
+			if (chunk.length > MAX_CHUNK)
+				chunk = new byte[1024];
+		}
+
+		private void put(byte[] data) throws IOException {
+			try {
+				while (!queue.offer(data, SentencePipe.ABORT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (aborted)
+						throw new IOException("The next component failed");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the next component");
+			}
+			if (aborted)
+				throw new IOException("The next component failed");
+		}
+	}
+
+	private final class Receiver extends InputStream {
+		private byte[] chunk = null;
+		private int pos = 0;
+
+		/**
+		 * @return false at the end of the stream
+		 */
+		private boolean nextChunk() throws IOException {
+			while (chunk == null || (chunk != END && pos == chunk.length)) {
+				try {
+					while ((chunk = queue.poll(SentencePipe.ABORT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+						if (aborted)
+							throw new IOException("The previous component failed");
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the previous component");
+				}
+				pos = 0;
+			}
+			return chunk != END;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return nextChunk() ? (chunk[pos++] & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!nextChunk())
+				return -1;
+			int n = Math.min(len, chunk.length - pos);
+			System.arraycopy(chunk, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return (chunk == null || chunk == END) ? 0 : chunk.length - pos;
+		}
+
+		/**
+		 * Closing before the end of the stream means that the receiving component gave up, so does the sender.
+		 */
+		@Override
+		public void close() {
+			if (chunk != END)
+				abort();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Splits a stream of CoNLL-RDF Turtle into sentences.
+ *
+ * A new sentence starts with the first <code>@</code> or <code>#</code> line (e.g. <code>@prefix</code> or a
+ * comment) following a non-blank line that does not start with one of these. Lines are trimmed and runs of tabs
+ * and spaces are collapsed to a single space.
+ * Prefixes are carried over: a sentence that does not declare any prefixes of its own is returned with the
+ * <code>@prefix</code> lines of the last sentence that did.
+ *
+ * Lines are normalized into reused buffers and the prefix declarations are tracked as the lines come in, so each
+ * input character is only copied a constant number of times, however long the sentence.
+ */
+class TurtleSentenceFramer {
+	private final BufferedReader in;
+	/** the sentence being read, one normalized line per row */
+	private final StringBuilder buffer = new StringBuilder();
+	/** the current line, normalized */
+	private final StringBuilder line = new StringBuilder();
+	/** the <code>@prefix</code> lines of the sentence being read */
+	private final StringBuilder sentencePrefixes = new StringBuilder();
+	/** the <code>@prefix</code> lines of the last sentence that declared any */
+	private String prefixCache = "";
+	/** the sentence being read mentions <code>@prefix</code> */
+	private boolean hasPrefix = false;
+	/** the sentence being read consists of blank lines only */
+	private boolean blank = true;
+	/** the previous line started with <code>@</code> or <code>#</code> */
+	private boolean lastLineHeader = false;
+	/** the input is exhausted, the last sentence has been returned */
+	private boolean last = false;
+
+	TurtleSentenceFramer(BufferedReader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next sentence. At the end of the input, the remaining lines are returned as the final sentence,
+	 * even if they are blank, and {@link #isFinal()} becomes true.
+	 * @return the sentence, with the prefixes in effect, or null after the final sentence
+	 * @throws IOException
+	 */
+	String next() throws IOException {
+		if (last)
+			return null;
+		String raw;
+		while ((raw = in.readLine()) != null) {
+			normalize(raw);
+			boolean header = line.length() > 0 && (line.charAt(0) == '@' || line.charAt(0) == '#');
+			if (!blank && header && !lastLineHeader) {
+				String sentence = frame();
+				append(header);
+				return sentence;
+			}
+			append(header);
+		}
+		last = true;
+		return frame();
+	}
+
+	/**
+	 * @return true if the sentence last returned by {@link #next()} was the final one
+	 */
+	boolean isFinal() {
+		return last;
+	}
+
+	/** equivalent to <code>raw.replaceAll("[\t ]+"," ").trim()</code> */
+	private void normalize(String raw) {
+		line.setLength(0);
+		int start = 0, end = raw.length();
+		while (start < end && raw.charAt(start) <= ' ')
+			start++;
+		while (end > start && raw.charAt(end - 1) <= ' ')
+			end--;
+		for (int i = start; i < end; i++) {
+			char c = raw.charAt(i);
+			if (c == ' ' || c == '\t') {
+				if (line.charAt(line.length() - 1) != ' ')
+					line.append(' ');
+			} else {
+				line.append(c);
+			}
+		}
+	}
+
+	private void append(boolean header) {
+		buffer.append(line).append('\n');
+		if (line.length() > 0)
+			blank = false;
+		if (line.indexOf("@prefix") >= 0) {
+			hasPrefix = true;
+			if (line.indexOf("@prefix") == 0)
+				sentencePrefixes.append(line).append('\n');
+		}
+		lastLineHeader = header;
+	}
+
+	/** turn the buffer into a sentence and reset it */
+	private String frame() {
+		String sentence;
+		if (hasPrefix) {
+			prefixCache = sentencePrefixes.toString();
+			sentence = buffer.toString();
+		} else {
+			sentence = new StringBuilder(prefixCache.length() + buffer.length()).append(prefixCache).append(buffer).toString();
+		}
+		buffer.setLength(0);
+		sentencePrefixes.setLength(0);
+		hasPrefix = false;
+		blank = true;
+		return sentence;
+	}
+}
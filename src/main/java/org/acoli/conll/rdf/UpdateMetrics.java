@@ -0,0 +1,290 @@
+package org.acoli.conll.rdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The statistics of one update script of a CoNLLRDFUpdater, recorded once per sentence by all UpdateThreads
+ * without locking. Latencies are kept in a histogram of 4 buckets per power of two, from which the percentiles
+ * are read.
+ */
+final class UpdateMetrics implements UpdateMetricsMXBean {
+	static final Logger LOG = Logger.getLogger(UpdateMetrics.class);
+	private static final String[] CSV_COLUMNS = { "position", "name", "count", "totalNanos", "meanNanos",
+			"maxNanos", "p50Nanos", "p90Nanos", "p99Nanos", "iterations", "iterationHistogram", "triplesAdded",
+			"triplesRemoved", "maxIterateHits" };
+
+	private final String name;
+	private final int position;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+	private final AtomicLongArray latencies = new AtomicLongArray(bucket(Long.MAX_VALUE) + 1);
+	private final LongAdder iterations = new LongAdder();
+	private final AtomicLongArray iterationCounts = new AtomicLongArray(CoNLLRDFComponent.MAXITERATE + 1);
+	private final LongAdder triplesAdded = new LongAdder();
+	private final LongAdder triplesRemoved = new LongAdder();
+	private final LongAdder maxIterateHits = new LongAdder();
+
+	UpdateMetrics(String name, int position) {
+		this.name = name;
+		this.position = position;
+	}
+
+	/**
+	 * Record the application of the update to one sentence.
+	 * @param nanos
+	 * 			the time taken by all iterations
+	 * @param iterations
+	 * 			the number of iterations, at most MAXITERATE
+	 */
+	void record(long nanos, int iterations, long added, long removed) {
+		nanos = Math.max(0, nanos);
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulateAndGet(nanos, Math::max);
+		latencies.incrementAndGet(bucket(nanos));
+		this.iterations.add(iterations);
+		iterationCounts.incrementAndGet(Math.min(Math.max(iterations, 0), CoNLLRDFComponent.MAXITERATE));
+		triplesAdded.add(added);
+		triplesRemoved.add(removed);
+		if (iterations >= CoNLLRDFComponent.MAXITERATE)
+			maxIterateHits.increment();
+	}
+
+	/**
+	 * @return the histogram bucket of a latency: values below 4 have a bucket of their own, above, each power of two
+	 * 			is split into 4 buckets by the two bits following the leading one
+	 */
+	static int bucket(long nanos) {
+		if (nanos < 4)
+			return (int) Math.max(nanos, 0);
+		int msb = 63 - Long.numberOfLeadingZeros(nanos);
+		return 4 * (msb - 1) + (int) ((nanos >>> (msb - 2)) & 3);
+	}
+
+	/**
+	 * @return the largest latency in a bucket
+	 */
+	static long bucketEnd(int bucket) {
+		if (bucket < 4)
+			return bucket;
+		int msb = bucket / 4 + 1;
+		long start = (4L + bucket % 4) << (msb - 2);
+		return start + (1L << (msb - 2)) - 1;
+	}
+
+	/**
+	 * @return the latency below or at which a fraction <code>p</code> of all latencies are
+	 */
+	long percentile(double p) {
+		long total = 0;
+		long[] counts = new long[latencies.length()];
+		for (int i = 0; i < counts.length; i++)
+			total += (counts[i] = latencies.get(i));
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(p * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(bucketEnd(i), getMaxNanos());
+		}
+		return getMaxNanos();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public int getPosition() {
+		return position;
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	@Override
+	public long getMeanNanos() {
+		long n = getCount();
+		return (n == 0) ? 0 : getTotalNanos() / n;
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	@Override
+	public long getP50Nanos() {
+		return percentile(0.5);
+	}
+
+	@Override
+	public long getP90Nanos() {
+		return percentile(0.9);
+	}
+
+	@Override
+	public long getP99Nanos() {
+		return percentile(0.99);
+	}
+
+	@Override
+	public long getIterations() {
+		return iterations.sum();
+	}
+
+	@Override
+	public Map<Integer, Long> getIterationHistogram() {
+		Map<Integer, Long> result = new TreeMap<Integer, Long>();
+		for (int i = 0; i < iterationCounts.length(); i++)
+			if (iterationCounts.get(i) > 0)
+				result.put(i, iterationCounts.get(i));
+		return result;
+	}
+
+	@Override
+	public long getTriplesAdded() {
+		return triplesAdded.sum();
+	}
+
+	@Override
+	public long getTriplesRemoved() {
+		return triplesRemoved.sum();
+	}
+
+	@Override
+	public long getMaxIterateHits() {
+		return maxIterateHits.sum();
+	}
+
+	/**
+	 * @return all statistics by the names of {@link #CSV_COLUMNS}
+	 */
+	Map<String, Object> toMap() {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("position", getPosition());
+		result.put("name", getName());
+		result.put("count", getCount());
+		result.put("totalNanos", getTotalNanos());
+		result.put("meanNanos", getMeanNanos());
+		result.put("maxNanos", getMaxNanos());
+		result.put("p50Nanos", getP50Nanos());
+		result.put("p90Nanos", getP90Nanos());
+		result.put("p99Nanos", getP99Nanos());
+		result.put("iterations", getIterations());
+		result.put("iterationHistogram", getIterationHistogram());
+		result.put("triplesAdded", getTriplesAdded());
+		result.put("triplesRemoved", getTriplesRemoved());
+		result.put("maxIterateHits", getMaxIterateHits());
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+
+	/**
+	 * Register the metrics of all updates of an updater with the platform MBean server.
+	 * @return the names registered, for {@link #unregister(List)}
+	 */
+	static List<ObjectName> register(List<UpdateMetrics> metrics, int updater) {
+		List<ObjectName> names = new ArrayList<ObjectName>();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (UpdateMetrics m : metrics) {
+			try {
+				ObjectName name = new ObjectName("org.acoli.conll.rdf:type=CoNLLRDFUpdater,updater=" + updater
+						+ ",update=" + m.getPosition() + ",name=" + ObjectName.quote(m.getName()));
+				server.registerMBean(m, name);
+				names.add(name);
+			} catch (JMException e) {
+				LOG.warn("Failed to register update metrics with JMX: " + e);
+			}
+		}
+		return names;
+	}
+
+	static void unregister(List<ObjectName> names) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : names) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				LOG.debug(e);
+			}
+		}
+	}
+
+	/**
+	 * Write the metrics of all updates to a file, as CSV if its name ends with <code>.csv</code>, as JSON otherwise.
+	 * The file is replaced at once, so that readers never see a partial report.
+	 */
+	static void writeReport(List<UpdateMetrics> metrics, File file) throws IOException {
+		String report;
+		if (file.getName().toLowerCase().endsWith(".csv")) {
+			StringWriter out = new StringWriter();
+			PrintWriter csv = new PrintWriter(out);
+			csv.println(String.join(",", CSV_COLUMNS));
+			for (UpdateMetrics m : metrics) {
+				List<String> cells = new ArrayList<String>();
+				for (Map.Entry<String, Object> cell : m.toMap().entrySet()) {
+					String value = String.valueOf(cell.getValue());
+					if (cell.getValue() instanceof Map)
+						value = value.replaceAll("[{}]", "").replace(", ", " ");
+					cells.add(value.matches("[^,\"\n]*") ? value : "\"" + value.replace("\"", "\"\"") + "\"");
+				}
+				csv.println(String.join(",", cells));
+			}
+			csv.flush();
+			report = out.toString();
+		} else {
+			List<Map<String, Object>> maps = new ArrayList<Map<String, Object>>();
+			for (UpdateMetrics m : metrics)
+				maps.add(m.toMap());
+			report = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(maps) + "\n";
+		}
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			Files.write(tmp.toPath(), report.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package org.acoli.conll.rdf;
+
+import java.util.Map;
+
+/**
+ * The statistics of one update script of a CoNLLRDFUpdater, as registered with JMX under
+ * <code>org.acoli.conll.rdf:type=CoNLLRDFUpdater,updater=N,update=POSITION,name="NAME"</code>.
+ * Latencies are per sentence, over all iterations of the update, in nanoseconds.
+ */
+public interface UpdateMetricsMXBean {
+	/** @return the name of the update, i.e., its file or URL */
+	String getName();
+	/** @return the position of the update in the list of updates, starting at 1 */
+	int getPosition();
+	/** @return the number of sentences the update was applied to */
+	long getCount();
+	long getTotalNanos();
+	long getMeanNanos();
+	long getMaxNanos();
+	/** @return the median latency, rounded up to the end of its histogram bucket, i.e., by 25% at most */
+	long getP50Nanos();
+	long getP90Nanos();
+	long getP99Nanos();
+	/** @return the number of iterations over all sentences */
+	long getIterations();
+	/** @return the number of sentences by the number of iterations they took */
+	Map<Integer, Long> getIterationHistogram();
+	/** @return the net number of triples added to the sentence graphs */
+	long getTriplesAdded();
+	/** @return the net number of triples removed from the sentence graphs */
+	long getTriplesRemoved();
+	/** @return the number of sentences for which the update reached MAXITERATE iterations */
+	long getMaxIterateHits();
+}
@@ -0,0 +1,118 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+public class CoNLL2RDFTest {
+	private static final String BASE = "http://example.org/test#";
+
+	// conll2model() builds triples directly, conll2ttl() writes Turtle: both must yield the same graph
+	private static void assertSameAsTurtle(String conll, String... columns) throws IOException {
+		StringWriter ttl = new StringWriter();
+		new CoNLL2RDF(BASE, columns.clone()).conll2ttl(new StringReader(conll), ttl);
+		Model expected = ModelFactory.createDefaultModel().read(new StringReader(ttl.toString()), BASE, "TTL");
+		Model actual = new CoNLL2RDF(BASE, columns.clone()).conll2model(new StringReader(conll));
+		assertTrue(expected.isIsomorphicWith(actual), "for input\n" + conll);
+		assertEquals(expected.getNsPrefixMap(), actual.getNsPrefixMap());
+	}
+
+	@Test
+	void dependencies() throws IOException {
+		assertSameAsTurtle("# sent_id = 1\n"
+				+ "1\tThe\tDT\t2\tdet\n"
+				+ "2\tdog\tNN\t0\troot\n"
+				+ "\n"
+				+ "1-2\tdon't\t_\t_\t_\n"
+				+ "1\tdo\tVB\t0\troot\n"
+				+ "2\tn't\tRB\t1\tneg\n"
+				+ "2.1\tgo\tVB\t_\t_\n"
+				+ "\n", "ID", "WORD", "POS", "head", "edge");
+	}
+
+	@Test
+	void literals() throws IOException {
+		assertSameAsTurtle("\"\tQUOT\n&\tAMP\na\\b\tBS\n\\u0041\tESC\nÄpfel\tNN\nx # y\tCOMMENT\n\n", "WORD", "POS");
+	}
+
+	@Test
+	void semanticRoles() throws IOException {
+		StringBuilder conll = new StringBuilder();
+		// more than 10 predicates, to check placeholder resolution for _TMP_PRED_10
+		for (int i = 1; i <= 12; i++) {
+			conll.append(i + "\tw" + i + "\tp" + i);
+			for (int j = 1; j <= 12; j++)
+				conll.append(j == i % 12 + 1 ? "\tA0" : (j == i ? "\tAM-TMP" : "\t_"));
+			conll.append("\n");
+		}
+		conll.append("\n");
+		assertSameAsTurtle(conll.toString(), "ID", "WORD", "PRED", "PRED-ARGS");
+	}
+
+	// sentence IDs continue across calls, and nif:nextSentence links to the previous call's sentence
+	@Test
+	void sentenceCount() throws IOException {
+		CoNLL2RDF conll2rdf = new CoNLL2RDF(BASE, new String[] { "WORD" });
+		conll2rdf.conll2model(new StringReader("a\nb\n\n"));
+		conll2rdf.conll2model(new StringReader("# only a comment\n\n"));
+		Model m = conll2rdf.conll2model(new StringReader("c\n\n"));
+		assertTrue(m.contains(m.getResource(BASE + "s1_0"),
+				m.getProperty("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#nextSentence"),
+				m.getResource(BASE + "s2_0")));
+		assertTrue(m.contains(m.getResource(BASE + "s2_1"), null, "c"));
+	}
+
+	// input the Turtle route rejects or treats differently is left to the Turtle route
+	@Test
+	void fallback() throws IOException {
+		assertSameAsTurtle("1\ta\nunterminated\tb\n", "ID", "WORD");
+		assertSameAsTurtle("1\t_TMP_x\n\n", "ID", "WORD");
+		// invalid Turtle, hence no model
+		assertNull(new CoNLL2RDF(BASE, new String[] { "ID", "WORD" }).conll2model(new StringReader("a b\tNN\n\n")));
+	}
+
+	// the single scan for s and p tags must agree with the regular expressions it replaces
+	@Test
+	void normalizeLine() {
+		String[] lines = { "", "  a\tb  ", "<s>", "</s>", "<S id=\"1\">", "<p>x</p>", "<doc id=\"a\">", "</doc>",
+				"<s>1\tdog\t<NN>", "<s", "<s x", "<sx>", "</>", "<>", "<//s>", "a<b>c", "< s>", "<g/>", " <s> <p> ",
+				"<p a>b>", "<ps>", "<P>< s>", "1\t<\t>", "#<s>", "<s>#</s>" };
+		for (String line : lines) {
+			String expected = line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)", "").trim();
+			if (expected.matches("^<[^>]*>$"))
+				expected = null;
+			assertEquals(expected, Format2RDF.normalizeLine(line), "for line " + line);
+		}
+	}
+
+	// the scan for rows must agree with the regular expression it replaces
+	@Test
+	void isRow() {
+		String[] lines = { "", " ", "\t", "#", " # x", "a", " a ", "a#b", "\t#\t", "1\tdog", "#1\tdog", " x #" };
+		for (String line : lines)
+			assertEquals(!line.replaceFirst("#.*", "").trim().equals(""), Format2RDF.isRow(line), "for line " + line);
+		assertTrue(CoNLLStreamExtractor.hasTokens("# c\n\n1\tdog\n"));
+		assertFalse(CoNLLStreamExtractor.hasTokens("# c\n \n#1\tdog"));
+	}
+
+	// column roles are resolved from the labels, case-insensitive
+	@Test
+	void columnRoles() throws IOException {
+		CoNLL2RDF conll2rdf = new CoNLL2RDF(BASE, new String[] { "id", "Word", "head2", "PRED", "HEADER", "PRED_args" });
+		assertEquals(0, conll2rdf.idCol);
+		assertTrue(conll2rdf.hasRole(1, Format2RDF.WORD));
+		assertTrue(conll2rdf.hasRole(2, Format2RDF.HEAD));
+		assertTrue(conll2rdf.hasRole(3, Format2RDF.PREDICATE));
+		assertFalse(conll2rdf.hasRole(4, Format2RDF.HEAD));
+		assertFalse(conll2rdf.hasRole(6, Format2RDF.WORD));
+		assertTrue(conll2rdf.hasArgs);
+		assertEquals("PRED", conll2rdf.argsStem);
+		assertEquals(-1, new CoNLL2RDF(BASE, new String[] { "WORD" }).idCol);
+	}
+}
@@ -0,0 +1,85 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+public class CoNLLExporterTest {
+	private static final String PREFIXES = ""
+			+ "@prefix : <http://example.org/test#> .\n"
+			+ "@prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> .\n"
+			+ "@prefix conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#> .\n"
+			+ "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+			+ "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n";
+
+	private static final String SENTENCE = PREFIXES
+			+ "# sent_id = 2\n"
+			+ ":s1_0 nif:nextSentence :s2_0 .\n"
+			+ ":s2_0 a nif:Sentence ; rdfs:comment \"global.columns = ID WORD POS HEAD\\\\nsome comment\" .\n"
+			+ ":s2_1 a nif:Word ; conll:ID \"1\" ; conll:WORD \"say \\\"hi\\\"\"@en ; conll:POS <http://example.org/VB> ;"
+			+ " conll:HEAD :s2_0 ; conll:N \"7\"^^xsd:int ; nif:nextWord :s2_2 .\n"
+			+ ":s2_2 a nif:Word ; conll:ID \"2\" ; conll:WORD \"to\" ; conll:POS [] ; conll:HEAD :s2_3 ; nif:nextWord :s2_3 .\n"
+			+ ":s2_3 a nif:Word ; conll:ID \"3\" ; conll:WORD \"me\" ; conll:HEAD :s2_1 .\n"
+			+ ":s2_4 a nif:Word ; conll:ID \"4\" ; conll:WORD \"unattached\" .\n";
+
+	// same output as the SPARQL export, for all kinds of cells and for HEAD in any position
+	@Test
+	void sameAsSparql() throws IOException {
+		for (String cols : new String[] { "ID WORD POS HEAD", "HEAD WORD", "WORD N", "N WORD", "POS", "MISSING WORD" }) {
+			assertNotNull(new CoNLLExporter(Arrays.asList(cols.split(" "))).export(model(SENTENCE).getGraph()), cols);
+			assertEquals(sparql(SENTENCE, cols), conll(SENTENCE, cols), cols);
+		}
+	}
+
+	// the words are ordered by the nif:nextWord chain, not by their IDs
+	@Test
+	void wordOrder() throws IOException {
+		String sentence = PREFIXES
+				+ ":s1_0 a nif:Sentence .\n"
+				+ ":s1_2 a nif:Word ; conll:WORD \"b\" ; conll:HEAD :s1_0 ; nif:nextWord :s1_1 .\n"
+				+ ":s1_1 a nif:Word ; conll:WORD \"a\" ; conll:HEAD :s1_2 .\n";
+		assertEquals("# global.columns = WORD HEAD\nb\t0\t\na\t2\n\t\n\n", conll(sentence, "WORD HEAD"));
+		assertEquals(sparql(sentence, "WORD HEAD"), conll(sentence, "WORD HEAD"));
+	}
+
+	// graphs and columns whose result the exporter does not reproduce are left to the query
+	@Test
+	void fallback() throws IOException {
+		String multipleValues = SENTENCE + ":s2_3 conll:POS \"PRP\", \"PRON\" .\n";
+		String branchingWords = SENTENCE + ":s2_4 nif:nextWord :s2_3 ; conll:HEAD :s2_0 .\n";
+		String sameWordIds = SENTENCE + ":s2_5 a nif:Word ; conll:WORD \"again\" ; conll:HEAD :s2_0 .\n";
+		assertNull(new CoNLLExporter(Arrays.asList("WORD", "POS")).export(model(multipleValues).getGraph()));
+		assertNull(new CoNLLExporter(Arrays.asList("WORD")).export(model(branchingWords).getGraph()));
+		assertNull(new CoNLLExporter(Arrays.asList("WORD")).export(model(sameWordIds).getGraph()));
+		assertNull(new CoNLLExporter(Arrays.asList("POS", "POSs")).export(model(SENTENCE).getGraph()));
+		assertNull(new CoNLLExporter(Arrays.asList("word")).export(model(SENTENCE).getGraph()));
+		assertEquals(sparql(multipleValues, "WORD POS"), conll(multipleValues, "WORD POS"));
+	}
+
+	private static Model model(String ttl) {
+		return ModelFactory.createDefaultModel().read(new StringReader(ttl), null, "TTL");
+	}
+
+	private static String conll(String ttl, String cols) throws IOException {
+		StringWriter out = new StringWriter();
+		CoNLLRDFFormatter.printConll(model(ttl), ttl, new CoNLLExporter(Arrays.asList(cols.split(" "))), false, out);
+		return out.toString();
+	}
+
+	private static String sparql(String ttl, String cols) throws IOException {
+		List<String> columns = Arrays.asList(cols.split(" "));
+		StringWriter out = new StringWriter();
+		CoNLLRDFFormatter.printSparql(model(ttl), ttl, CoNLLRDFFormatter.columnsAsSelect(columns), out);
+		return out.toString();
+	}
+}
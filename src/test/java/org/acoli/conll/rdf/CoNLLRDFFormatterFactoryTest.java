@@ -1,14 +1,24 @@
 package org.acoli.conll.rdf;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.apache.commons.cli.ParseException;
 import org.junit.jupiter.api.Test;
 import org.acoli.conll.rdf.CoNLLRDFFormatter.Mode;
+import org.acoli.conll.rdf.CoNLLRDFFormatter.Module;
 
 public class CoNLLRDFFormatterFactoryTest {
 	// rdf COLS
@@ -107,4 +117,95 @@ public class CoNLLRDFFormatterFactoryTest {
 		assertEquals(new LinkedList<String>(Arrays.asList("WORD", "POS", "PARSE", "NER", "COREF", "PRED", "PRED-ARGS")),
 				formatter.getModules().get(0).getCols());
 	}
+
+	@Test
+	void parallelOption() throws IOException, ParseException {
+		assertFalse(new CoNLLRDFFormatterFactory().buildFromCLI(new String[] { "-conll", "WORD" }).isParallel());
+		assertTrue(new CoNLLRDFFormatterFactory().buildFromCLI(new String[] { "-conll", "WORD", "-parallel" }).isParallel());
+	}
+
+	// modules writing to different streams produce the same output on one and on several threads
+	@Test
+	void parallelOutput() throws IOException, ParseException {
+		StringBuilder conll = new StringBuilder();
+		for (int i = 1; i <= 30; i++) {
+			for (int j = 1; j <= i % 4 + 1; j++)
+				conll.append(j + "\tw" + i + "_" + j + "\t" + (j - 1) + "\n");
+			conll.append("\n");
+		}
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {
+				"http://example.org/test#", "ID", "WORD", "HEAD"});
+		extractor.setInputStream(new BufferedReader(new StringReader(conll.toString())));
+		ByteArrayOutputStream ttl = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(ttl, true, "UTF-8"));
+		extractor.processSentenceStream();
+
+		assertEquals(format(ttl.toString("UTF-8"), false), format(ttl.toString("UTF-8"), true));
+	}
+
+	@Test
+	void typedCommentsOption() throws IOException, ParseException {
+		assertFalse(new CoNLLRDFFormatterFactory().buildFromCLI(new String[] { "-conll", "WORD" }).isTypedComments());
+		assertTrue(new CoNLLRDFFormatterFactory().buildFromCLI(new String[] { "-conll", "WORD", "-typedComments" }).isTypedComments());
+	}
+
+	// typed comments of CoNLLStreamExtractor -typedComments are written as comments again, once, only if requested
+	@Test
+	void typedCommentsRoundTrip() throws IOException, ParseException {
+		String conll = "# sent_id = a1\n# text = The cat .\n# plain\n1\tThe\t2\n2\tcat\t0\n";
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {
+				"http://example.org/test#", "ID", "WORD", "HEAD", "-typedComments"});
+		extractor.setInputStream(new BufferedReader(new StringReader(conll)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		extractor.processSentenceStream();
+		String ttl = out.toString("UTF-8");
+		// as after a step that does not pass on the comment lines before the sentence
+		String ttlWithoutCommentLines = ttl.replaceAll("(?m)^#.*\n", "");
+
+		for (String input : new String[] { ttl, ttlWithoutCommentLines }) {
+			List<String> typed = Arrays.asList(formatConll(input, "-typedComments").split("\n"));
+			assertEquals(1, Collections.frequency(typed, "# sent_id = a1"));
+			assertEquals(1, Collections.frequency(typed, "# text = The cat ."));
+			assertTrue(typed.contains("# plain"));
+			assertTrue(typed.contains("1\tThe\t2\t"));
+		}
+		List<String> untyped = Arrays.asList(formatConll(ttlWithoutCommentLines).split("\n"));
+		assertFalse(untyped.contains("# sent_id = a1"));
+		assertFalse(untyped.contains("# text = The cat ."));
+		assertTrue(untyped.contains("# plain"));
+		assertTrue(untyped.contains("1\tThe\t2\t"));
+	}
+
+	private static String formatConll(String ttl, String... options) throws IOException, ParseException {
+		List<String> args = new ArrayList<String>(Arrays.asList("-conll", "ID", "WORD", "HEAD"));
+		args.addAll(Arrays.asList(options));
+		CoNLLRDFFormatter formatter = new CoNLLRDFFormatterFactory().buildFromCLI(args.toArray(new String[0]));
+		formatter.setInputStream(new BufferedReader(new StringReader(ttl)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		formatter.getModules().get(0).setOutputStream(new PrintStream(out, true, "UTF-8"));
+		formatter.processSentenceStream();
+		return out.toString("UTF-8");
+	}
+
+	private static List<String> format(String ttl, boolean parallel) throws IOException {
+		CoNLLRDFFormatter formatter = new CoNLLRDFFormatter();
+		formatter.setParallel(parallel);
+		formatter.setInputStream(new BufferedReader(new StringReader(ttl)));
+		List<ByteArrayOutputStream> outs = new ArrayList<ByteArrayOutputStream>();
+		for (Mode mode : new Mode[] { Mode.CONLL, Mode.GRAMMAR, Mode.CONLLRDF }) {
+			Module module = new Module();
+			module.setMode(mode);
+			module.setCols(Arrays.asList("ID", "WORD", "HEAD"));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			outs.add(out);
+			module.setOutputStream(new PrintStream(out, true, "UTF-8"));
+			formatter.addModule(module);
+		}
+		formatter.processSentenceStream();
+		List<String> result = new ArrayList<String>();
+		for (ByteArrayOutputStream out : outs)
+			result.add(out.toString("UTF-8"));
+		return result;
+	}
 }
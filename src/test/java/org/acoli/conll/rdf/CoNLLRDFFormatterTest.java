@@ -0,0 +1,42 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class CoNLLRDFFormatterTest {
+	@Test
+	void naturalOrder() {
+		assertTrue(CoNLLRDFFormatter.NATURAL_ORDER.compare(":s2_9 a nif:Word .", ":s2_10 a nif:Word .") < 0);
+		assertTrue(CoNLLRDFFormatter.NATURAL_ORDER.compare(":s10_1 a nif:Word .", ":s9_1 a nif:Word .") > 0);
+		assertTrue(CoNLLRDFFormatter.NATURAL_ORDER.compare(":s1_1 a", ":s1_1 a nif:Word .") < 0);
+		// leading zeros and tabs do not count
+		assertEquals(0, CoNLLRDFFormatter.NATURAL_ORDER.compare(":s01_1\ta", ":s1_1 a"));
+	}
+
+	// prefixes and comments first, then statements by subject, columns of a word in the order given
+	@Test
+	void reorderTTLBuffer() {
+		String buffer = "\n@prefix : <http://example.org/test#> .\t\n"
+				+ "# sent_id = 1\t\n"
+				+ ":s1_10 a nif:Word ;\tconll:POS \"NN\" ;\tnif:nextWord :s1_11 ;\tconll:WORD \"ten\" .\t\n"
+				+ ":s1_9 a nif:Word ;\tconll:POS \"CD\" ;\tconll:WORD \"nine\" ;\tnif:nextWord :s1_10 .\t\n"
+				+ ":s1_0 a nif:Sentence .\t\n"
+				+ ":s1_0 a nif:Sentence .\t\n";
+		assertEquals("@prefix : <http://example.org/test#> .\n"
+				+ "# sent_id = 1\n"
+				+ ":s1_0 a nif:Sentence .\n"
+				+ ":s1_9 a nif:Word; conll:WORD \"nine\"; conll:POS \"CD\"; nif:nextWord :s1_10 .\n"
+				+ ":s1_10 a nif:Word; conll:WORD \"ten\"; conll:POS \"NN\"; nif:nextWord :s1_11 .\n",
+				CoNLLRDFFormatter.reorderTTLBuffer(buffer, Arrays.asList("POS")));
+		assertEquals("", CoNLLRDFFormatter.reorderTTLBuffer("", Collections.<String>emptyList()));
+		// a column is matched by the predicate, not by any statement that mentions it
+		assertEquals(":s1_1 a nif:Word; conll:WORD \"POS\"; conll:POS \"NN\"; conll:HEAD :s1_0; conll:UPOS \"NOUN\" .\n",
+				CoNLLRDFFormatter.reorderTTLBuffer(":s1_1 a nif:Word ;\tconll:UPOS \"NOUN\" ;\tconll:HEAD :s1_0 ;\t"
+						+ "conll:POS \"NN\" ;\tconll:WORD \"POS\" .", Arrays.asList("POS", "HEAD")));
+	}
+}
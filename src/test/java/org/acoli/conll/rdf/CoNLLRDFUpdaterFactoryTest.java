@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.*;
 
 import org.apache.commons.cli.ParseException;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.shared.AddDeniedException;
 import org.apache.log4j.Level;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -42,6 +45,13 @@ public class CoNLLRDFUpdaterFactoryTest {
 		assertEquals(9, updater.getThreads());
 	}
 
+	// maxInFlight
+	@Test
+	void setMaxInFlight() throws IOException, ParseException {
+		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-maxInFlight", "12" });
+		assertEquals(12, updater.getMaxInFlight());
+	}
+
 	// lookahead
 	@Test
 	void setLookahead() throws IOException, ParseException {
@@ -69,7 +79,35 @@ public class CoNLLRDFUpdaterFactoryTest {
 		assertEquals(false, updater.getPrefixDeduplication());
 	}
 
+	// output
+	@Test
+	void setOutput() throws IOException, ParseException {
+		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-output", "nquads" });
+		assertEquals(OutputFormat.NQUADS, updater.getOutputFormat());
+	}
+
+	@Test
+	void unknownOutput() throws IOException, ParseException {
+		assertThrows(ParseException.class, () -> {
+			new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-output", "rdfxml" });
+		});
+	}
+
 	// custom
+	@Test
+	void setMetrics() throws IOException, ParseException {
+		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-metrics", "metrics.csv", "5" });
+		assertEquals("metrics.csv", updater.getMetricsReport().getName());
+		assertEquals(5, updater.getMetricsInterval());
+	}
+
+	@Test
+	void invalidMetricsInterval() throws IOException, ParseException {
+		assertThrows(ParseException.class, () -> {
+			new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-metrics", "metrics.csv", "often" });
+		});
+	}
+
 	@Test
 	void setCustom() throws IOException, ParseException {
 		new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-custom" });
@@ -90,13 +128,18 @@ public class CoNLLRDFUpdaterFactoryTest {
 		assertTrue(updater.hasGraph("http://localhost"));
 	}
 
-	// TODO test with model from local File
-	/* @Test
+	// models from local files, loaded into the same graph, are merged and shared read-only
+	@Test
 	void setModelFromFile() throws IOException, ParseException {
-		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory()
-				.getUpdater(new String[] { "-model", "http://purl.org/olia/penn.owl", "http://localhost" });
+		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] {
+				"-model", "owl/conll.ttl", "http://localhost", "-model", "owl/nif-core.ttl", "http://localhost" });
 		assertTrue(updater.hasGraph("http://localhost"));
-	}*/
+		final Model expected = ModelFactory.createDefaultModel().read("owl/conll.ttl").read("owl/nif-core.ttl");
+		assertTrue(expected.isIsomorphicWith(updater.getGraph("http://localhost")));
+		assertThrows(AddDeniedException.class, () -> {
+			updater.getGraph("http://localhost").add(expected);
+		});
+	}
 
 	// graphsout
 	// TODO use junit5's @TempDir for the tests producing files
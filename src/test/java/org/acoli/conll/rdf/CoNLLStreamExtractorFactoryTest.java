@@ -2,18 +2,29 @@ package org.acoli.conll.rdf;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
 import org.apache.log4j.Logger;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class CoNLLStreamExtractorFactoryTest {
 	static Logger LOG = Logger.getLogger(CoNLLStreamExtractorFactoryTest.class);
@@ -89,4 +100,138 @@ public class CoNLLStreamExtractorFactoryTest {
 
 		assertEquals(expected, extractor.getSelect());
 	}
+
+	// threads
+	@Test
+	void optionThreads() throws ParseException, IOException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-threads", "4"});
+		assertEquals(4, extractor.getThreads());
+		assertEquals(Arrays.asList("WORD"), extractor.getColumns());
+	}
+
+	// output
+	@Test
+	void optionOutput() throws ParseException, IOException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-output", "ntriples"});
+		assertEquals(OutputFormat.NTRIPLES, extractor.getOutputFormat());
+		assertEquals(OutputFormat.TURTLE, new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD"}).getOutputFormat());
+		assertThrows(ParseException.class, () -> {
+			new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-output", "rdfxml"});
+		});
+	}
+
+	// several threads produce the same output as one, including sentence IDs and comments
+	@Test
+	void threadedOutput() throws ParseException, IOException {
+		StringBuilder conll = new StringBuilder("# global.columns = ID WORD HEAD\n\n");
+		for (int i = 1; i <= 40; i++) {
+			conll.append("# sent_id = " + i + "\n");
+			for (int j = 1; j <= i % 5 + 1; j++)
+				conll.append(j + "\tw" + i + "_" + j + "\t" + (j - 1) + "\n");
+			conll.append("\n");
+		}
+		conll.append("# trailing comment\n");
+		assertEquals(extract(conll.toString(), "1"), extract(conll.toString(), "4"));
+	}
+
+	// a file read memory-mapped yields the same output as the same input read from a stream
+	@Test
+	void optionIn(@TempDir Path dir) throws ParseException, IOException {
+		String conll = "# global.columns = ID WORD HEAD\r\n\r\n<doc>\n<s>\n1\ta\t0\r\n2\tb\t1\n</s>\n\n\n"
+				+ "# between\n\n1\tc\t0 # note\n\n1\td\t0\n";
+		Path file = dir.resolve("in.conll");
+		Files.write(file, conll.getBytes(Charset.defaultCharset()));
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {
+				"http://example.org/test#", "ID", "WORD", "HEAD", "-in", file.toString()});
+		assertEquals(file.toFile(), extractor.getInputFile());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		extractor.processSentenceStream();
+		assertEquals(extract(conll, "1"), out.toString("UTF-8"));
+		assertThrows(IOException.class, () -> {
+			new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-in", dir.resolve("missing").toString()});
+		});
+	}
+
+	// selected sentences keep their IDs and links, as in the output for the entire file
+	@Test
+	void optionSentences(@TempDir Path dir) throws ParseException, IOException {
+		String conll = "1\ta\t0\n\n# between\n\n1\tb\t0\n\n# sent_id = third\n1\tc\t0\n";
+		Path file = dir.resolve("in.conll");
+		Files.write(file, conll.getBytes(Charset.defaultCharset()));
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {
+				"http://example.org/test#", "ID", "WORD", "HEAD", "-in", file.toString(), "-sentences", "third", "2"});
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		extractor.processSentenceStream();
+		String all = extract(conll, "1");
+		assertEquals(all.substring(all.indexOf("# between")), out.toString("UTF-8"));
+		assertThrows(ParseException.class, () -> {
+			new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-sentences", "1"});
+		});
+	}
+
+	// the output of all shards in order is the output for the entire file
+	@Test
+	void optionShard(@TempDir Path dir) throws ParseException, IOException {
+		String conll = "# first\n1\ta\t0\n\n# between\n\n1\tb\t0\n2\tc\t1\n\n1\td\t0\n\n1\te\t0\n\n# last\n";
+		Path file = dir.resolve("in.conll");
+		Files.write(file, conll.getBytes(Charset.defaultCharset()));
+		for (int n = 1; n <= 5; n++) {
+			StringBuilder shards = new StringBuilder();
+			for (int i = 1; i <= n; i++) {
+				CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {
+						"http://example.org/test#", "ID", "WORD", "HEAD", "-in", file.toString(), "-shard", "" + i, "" + n});
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+				extractor.processSentenceStream();
+				shards.append(out.toString("UTF-8"));
+			}
+			assertEquals(extract(conll, "1"), shards.toString());
+		}
+		assertThrows(ParseException.class, () -> {
+			new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-in", file.toString(), "-shard", "3", "2"});
+		});
+		assertThrows(ParseException.class, () -> {
+			new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "-in", file.toString(), "-shard", "1", "2"});
+		});
+	}
+
+	// the comments of a sentence end up in its rdfs:comment, key = value comments as typed properties if requested
+	@Test
+	void optionTypedComments() throws ParseException, IOException {
+		String conll = "# sent_id = a1\n# text = The cat .\n# global.columns = ID WORD HEAD\n# plain\n1\tThe\t2\n2\tcat\t0\n";
+		String conll_ = "http://ufal.mff.cuni.cz/conll2009-st/task-description.html#";
+		for (boolean typed : new boolean[] { false, true }) {
+			CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(typed
+					? new String [] { "http://example.org/test#", "ID", "WORD", "HEAD", "-typedComments" }
+					: new String [] { "http://example.org/test#", "ID", "WORD", "HEAD" });
+			assertEquals(typed, extractor.isTypedComments());
+			extractor.setInputStream(new BufferedReader(new StringReader(conll)));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+			extractor.processSentenceStream();
+			Model m = ModelFactory.createDefaultModel().read(new StringReader(out.toString("UTF-8")), null, "TTL");
+			Resource sentence = m.getResource("http://example.org/test#s1_0");
+			if (typed) {
+				assertEquals("a1", sentence.getProperty(m.getProperty(conll_ + "sent_id")).getString());
+				assertEquals("The cat .", sentence.getProperty(m.getProperty(conll_ + "text")).getString());
+				assertEquals(" global.columns = ID WORD HEAD\\n plain", sentence.getProperty(RDFS.comment).getString());
+			} else {
+				assertFalse(sentence.hasProperty(m.getProperty(conll_ + "sent_id")));
+				assertEquals(" sent_id = a1\\n text = The cat .\\n global.columns = ID WORD HEAD\\n plain",
+						sentence.getProperty(RDFS.comment).getString());
+			}
+		}
+	}
+
+	private static String extract(String conll, String threads) throws ParseException, IOException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {
+				"http://example.org/test#", "ID", "WORD", "HEAD", "-threads", threads});
+		extractor.setInputStream(new BufferedReader(new StringReader(conll)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		extractor.processSentenceStream();
+		return out.toString("UTF-8");
+	}
 }
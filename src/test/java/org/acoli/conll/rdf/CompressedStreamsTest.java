@@ -0,0 +1,126 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressedStreamsTest {
+	private static final byte[] TEXT = text();
+
+	// the parallel writer cuts the output into members, which read back as one stream
+	@Test
+	void roundTrip() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream out = new CompressedStreams.ParallelGzipOutputStream(compressed, 1000, 3)) {
+			out.write(TEXT, 0, 10);
+			out.flush();
+			out.write(TEXT, 10, TEXT.length - 10);
+		}
+		assertArrayEquals(TEXT, readAll(CompressedStreams.decompress(new ByteArrayInputStream(compressed.toByteArray()))));
+		assertArrayEquals(TEXT, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+	}
+
+	// flush() writes a block that is older than the flush interval, even if it is not full
+	@Test
+	void flushOldBlock() throws IOException, InterruptedException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		OutputStream out = new CompressedStreams.ParallelGzipOutputStream(compressed, 1 << 20, 1, 0);
+		out.write(TEXT, 0, 10);
+		out.flush();
+		assertArrayEquals(Arrays.copyOf(TEXT, 10), readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+		out.close();
+		// a block that was just started is written once it gets old
+		compressed.reset();
+		out = new CompressedStreams.ParallelGzipOutputStream(compressed, 1 << 20, 1, 200);
+		out.write(TEXT, 0, 10);
+		out.flush();
+		assertEquals(0, compressed.size());
+		for (int wait = 0; compressed.size() == 0 && wait < 100; wait++)
+			Thread.sleep(50);
+		assertArrayEquals(Arrays.copyOf(TEXT, 10), readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+		out.close();
+	}
+
+	// no output is still a valid gzip file
+	@Test
+	void emptyOutput() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		new CompressedStreams.ParallelGzipOutputStream(compressed, 1000, 1).close();
+		assertEquals(0, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))).length);
+	}
+
+	// all members are read from a pipe, which does not report the next member as available yet
+	@Test
+	void multipleMembersFromPipe() throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final List<Integer> ends = new ArrayList<Integer>();
+		for (int i = 0; i < TEXT.length; i += 5000) {
+			GZIPOutputStream member = new GZIPOutputStream(compressed);
+			member.write(TEXT, i, Math.min(5000, TEXT.length - i));
+			member.finish();
+			ends.add(compressed.size());
+		}
+		// each read ends at the end of a member at the latest, like a writer that flushes after each member
+		InputStream pipe = new FilterInputStream(new ByteArrayInputStream(compressed.toByteArray())) {
+			private int pos = 0;
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				while (!ends.isEmpty() && pos == ends.get(0))
+					ends.remove(0);
+				if (ends.isEmpty())
+					return -1;
+				int n = super.read(b, off, Math.min(len, ends.get(0) - pos));
+				pos += Math.max(n, 0);
+				return n;
+			}
+
+			@Override
+			public int available() {
+				return 0;
+			}
+		};
+		assertArrayEquals(TEXT, readAll(CompressedStreams.decompress(pipe)));
+	}
+
+	// uncompressed input is passed through, other compressions are refused
+	@Test
+	void detect() throws IOException {
+		assertArrayEquals(TEXT, readAll(CompressedStreams.decompress(new ByteArrayInputStream(TEXT))));
+		assertArrayEquals(new byte[] { 'a' }, readAll(CompressedStreams.decompress(new ByteArrayInputStream(new byte[] { 'a' }))));
+		assertThrows(IOException.class, () -> {
+			readAll(CompressedStreams.decompress(new ByteArrayInputStream("BZh91AY&SY".getBytes(StandardCharsets.US_ASCII))));
+		});
+	}
+
+	private static byte[] text() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 3000; i++)
+			text.append(i).append("\tword").append(i % 17).append("\tNN\t0\n");
+		return text.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+			out.write(buffer, 0, n);
+		in.close();
+		return out.toByteArray();
+	}
+}
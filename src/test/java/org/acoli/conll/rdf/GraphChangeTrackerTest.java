@@ -0,0 +1,108 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.update.UpdateAction;
+import org.junit.jupiter.api.Test;
+
+public class GraphChangeTrackerTest {
+	private static final String NS = "http://example.org/";
+
+	private static Model model() {
+		Model m = ModelFactory.createDefaultModel();
+		m.add(m.createResource(NS + "s1"), m.createProperty(NS + "p"), "a");
+		return m;
+	}
+
+	@Test
+	void noOpReAdd() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		m.add(m.createResource(NS + "s1"), m.createProperty(NS + "p"), "a");
+		assertFalse(tracker.hasChanged());
+		tracker.close();
+	}
+
+	@Test
+	void addAndRemove() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		Resource s2 = m.createResource(NS + "s2");
+		m.add(s2, m.createProperty(NS + "p"), "b");
+		assertTrue(tracker.hasChanged());
+		assertFalse(tracker.hasChanged());
+		m.removeAll(s2, null, null);
+		assertTrue(tracker.hasChanged());
+	}
+
+	@Test
+	void deleteAndReinsert() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		UpdateAction.parseExecute("DELETE { ?s ?p ?o } INSERT { ?s ?p ?o } WHERE { ?s ?p ?o }", m);
+		assertFalse(tracker.hasChanged());
+		UpdateAction.parseExecute("INSERT DATA { <" + NS + "s2> <" + NS + "p> \"b\" }", m);
+		assertTrue(tracker.hasChanged());
+	}
+
+	@Test
+	void removeAll() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		m.removeAll();
+		assertTrue(tracker.hasChanged());
+		m.removeAll();
+		assertFalse(tracker.hasChanged());
+	}
+
+	// changes are counted at each check, also after a change that is not broken down into triples
+	@Test
+	void counts() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		m.add(m.createResource(NS + "s2"), m.createProperty(NS + "p"), "b");
+		m.add(m.createResource(NS + "s3"), m.createProperty(NS + "p"), "c");
+		m.removeAll(m.createResource(NS + "s1"), null, null);
+		assertTrue(tracker.hasChanged());
+		assertEquals(2, tracker.getAdded());
+		assertEquals(1, tracker.getRemoved());
+		m.removeAll();
+		assertTrue(tracker.hasChanged());
+		assertEquals(2, tracker.getAdded());
+		assertEquals(3, tracker.getRemoved());
+		tracker.close();
+	}
+
+	// a bulk add is broken down into triples if all of them are new, and counted by size otherwise
+	@Test
+	void bulkAdd() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		m.add(model());
+		assertFalse(tracker.hasChanged());
+		Model more = model();
+		more.add(more.createResource(NS + "s2"), more.createProperty(NS + "p"), "b");
+		m.add(more);
+		assertTrue(tracker.hasChanged());
+		assertEquals(1, tracker.getAdded());
+		more.removeAll(more.createResource(NS + "s1"), null, null);
+		more.add(more.createResource(NS + "s3"), more.createProperty(NS + "p"), "c");
+		m.add(more);
+		assertTrue(tracker.hasChanged());
+		assertEquals(2, tracker.getAdded());
+		assertEquals(0, tracker.getRemoved());
+		tracker.close();
+	}
+
+	@Test
+	void closed() {
+		Model m = model();
+		GraphChangeTracker tracker = new GraphChangeTracker(m.getGraph());
+		tracker.close();
+		m.add(m.createResource(NS + "s2"), m.createProperty(NS + "p"), "b");
+		assertFalse(tracker.hasChanged());
+	}
+}
@@ -0,0 +1,77 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedSentenceReaderTest {
+	private static final String TEXT = "# comment\n1\ta\n2\tb\n\n\n1\tc\r\n\r\n\r1\td\r2\te\n \t\n1\tf\n\n1\tg";
+
+	private static List<String> readLines(BufferedReader in) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (String line = in.readLine(); line != null; line = in.readLine())
+			lines.add(line);
+		return lines;
+	}
+
+	private static Path write(Path dir, String text) throws IOException {
+		Path file = dir.resolve("test.conll");
+		Files.write(file, text.getBytes(Charset.defaultCharset()));
+		return file;
+	}
+
+	// the same lines as BufferedReader, whatever the window size, also if a \r\n is cut by the end of a window
+	@Test
+	void sameLines(@TempDir Path dir) throws IOException {
+		Path file = write(dir, TEXT);
+		List<String> expected = readLines(new BufferedReader(new StringReader(TEXT)));
+		for (int window : new int[] { 11, 12, 13, 14, 16, MappedSentenceReader.WINDOW }) {
+			List<String> lines = new ArrayList<String>();
+			try (MappedSentenceReader in = new MappedSentenceReader(file.toFile(), window)) {
+				for (String line = in.readLine(); line != null; line = in.readLine())
+					lines.add(line);
+				assertNull(in.readLine());
+			}
+			assertEquals(expected, lines, "window " + window);
+		}
+	}
+
+	// blocks end after the empty line following a sentence
+	@Test
+	void blocks(@TempDir Path dir) throws IOException {
+		try (MappedSentenceReader in = new MappedSentenceReader(write(dir, TEXT).toFile())) {
+			assertEquals("# comment\n1\ta\n2\tb\n\n", in.next());
+			assertEquals("\n1\tc\r\n\r\n", in.next());
+			assertEquals("\r1\td\r2\te\n \t\n", in.next());
+			assertEquals("1\tf\n\n", in.next());
+			assertEquals("1\tg", in.next());
+			assertNull(in.next());
+		}
+	}
+
+	@Test
+	void longLine(@TempDir Path dir) throws IOException {
+		try (MappedSentenceReader in = new MappedSentenceReader(write(dir, "1\tabcdefghij\n").toFile(), 4)) {
+			assertThrows(IOException.class, () -> in.next());
+		}
+	}
+
+	@Test
+	void canMap(@TempDir Path dir) throws IOException {
+		assertTrue(MappedSentenceReader.canMap(write(dir, TEXT).toFile()));
+		assertFalse(MappedSentenceReader.canMap(dir.toFile()));
+		Path gz = dir.resolve("test.conll.gz");
+		Files.write(gz, new byte[] { 0x1f, (byte) 0x8b, 8, 0 });
+		assertFalse(MappedSentenceReader.canMap(gz.toFile()));
+	}
+}
@@ -0,0 +1,151 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SentenceIndexTest {
+	private static final String CONLL = "# global.columns = ID WORD\n\n# sent_id = first\n1\ta\n2\tb\n\n\n"
+			+ "# between\n\n1\tc\r\n\r\n# sent_id = third\n1\td # note\n\n1\te";
+	private static final String PREFIX = "@prefix : <http://example.org/test#> .\n"
+			+ "@prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> .\n";
+	private static final String RDF = PREFIX + "\n:s1_1 a nif:Word .\n:s1_0 a nif:Sentence .\n\n"
+			+ "# sent_id = second\n:s2_0 a nif:Sentence ;\n\tnif:nextSentence :s3_0 .\n\n"
+			+ PREFIX + ":s3_0 a nif:Sentence .\n";
+
+	private static File write(Path dir, String name, String text) throws IOException {
+		Path file = dir.resolve(name);
+		Files.write(file, text.getBytes(Charset.defaultCharset()));
+		return file.toFile();
+	}
+
+	// sentences as numbered by CoNLLStreamExtractor, comment blocks belong to the sentence after them
+	@Test
+	void conll(@TempDir Path dir) throws IOException {
+		File file = write(dir, "test.conll", CONLL);
+		try (SentenceIndex index = SentenceIndex.forFile(file)) {
+			assertFalse(index.isRDF());
+			assertEquals(4, index.size());
+			assertEquals("s2_0", index.getId(2));
+			assertEquals("first", index.getSentId(1));
+			assertNull(index.getSentId(2));
+			assertEquals("# global.columns = ID WORD\n\n# sent_id = first\n1\ta\n2\tb\n\n", index.read(1));
+			assertEquals("\n# between\n\n1\tc\r\n\r\n", index.read(2));
+			assertEquals("1\te\n", index.read(4));
+			assertEquals(CONLL.length(), index.getOffset(4) + index.getLength(4));
+		}
+		assertTrue(new File(file.getPath() + SentenceIndex.SUFFIX).isFile());
+	}
+
+	// sentences as split by TurtleSentenceFramer, each preceded by the prefixes in effect
+	@Test
+	void rdf(@TempDir Path dir) throws IOException {
+		File file = write(dir, "test.ttl", RDF);
+		try (SentenceIndex index = SentenceIndex.forFile(file)) {
+			assertTrue(index.isRDF());
+			assertEquals(3, index.size());
+			assertEquals("second", index.getSentId(2));
+			assertEquals(PREFIX + "# sent_id = second\n:s2_0 a nif:Sentence ;\n\tnif:nextSentence :s3_0 .\n\n",
+					index.read(2));
+			assertEquals(PREFIX + ":s3_0 a nif:Sentence .\n", index.read(3));
+		}
+	}
+
+	@Test
+	void select(@TempDir Path dir) throws IOException {
+		try (SentenceIndex index = SentenceIndex.forFile(write(dir, "test.conll", CONLL))) {
+			assertArrayEquals(new int[] { 1, 2, 3, 4 }, index.select(Arrays.asList("third", "s4_0", "1-2", "2")));
+			assertArrayEquals(new int[] { 3 }, index.select(Arrays.asList("3")));
+			assertThrows(IOException.class, () -> index.select(Arrays.asList("s5_0")));
+			assertThrows(IOException.class, () -> index.select(Arrays.asList("3-5")));
+			assertThrows(IOException.class, () -> index.select(Arrays.asList("unknown")));
+		}
+	}
+
+	@Test
+	void open(@TempDir Path dir) throws IOException {
+		File file = write(dir, "test.ttl", RDF);
+		try (BufferedReader in = SentenceIndex.openInput(file.getPath(), new String[] { "s3_0", "1" })) {
+			assertEquals(PREFIX + "\n:s1_1 a nif:Word .\n:s1_0 a nif:Sentence .\n\n" + PREFIX
+					+ ":s3_0 a nif:Sentence .\n", in.lines().collect(Collectors.joining("\n", "", "\n")));
+		}
+		assertThrows(IOException.class, () -> SentenceIndex.openInput("System.in", new String[] { "1" }));
+	}
+
+	// the shards are cut before sentences and cover the entire file
+	@Test
+	void shard(@TempDir Path dir) throws IOException {
+		File file = write(dir, "test.conll", CONLL);
+		try (SentenceIndex index = SentenceIndex.forFile(file)) {
+			for (int n = 1; n <= 8; n++) {
+				StringBuilder shards = new StringBuilder();
+				int next = 1;
+				for (int i = 1; i <= n; i++) {
+					int[] shard = index.shard(i, n);
+					assertEquals(next, shard[0]);
+					next = shard[1] + 1;
+					try (BufferedReader in = index.openShard(i, n)) {
+						for (int c = in.read(); c >= 0; c = in.read())
+							shards.append((char) c);
+					}
+				}
+				assertEquals(index.size() + 1, next);
+				assertEquals(CONLL, shards.toString());
+			}
+			assertArrayEquals(new int[] { 2, 4 }, index.shard(2, 2));
+			assertThrows(IOException.class, () -> index.shard(3, 2));
+		}
+	}
+
+	// a CoNLL-RDF shard starts with the prefixes in effect for its first sentence
+	@Test
+	void shardRDF(@TempDir Path dir) throws IOException {
+		String rdf = RDF.replace("\n\n" + PREFIX, "\n\n");
+		File file = write(dir, "test.ttl", rdf);
+		try (SentenceIndex index = SentenceIndex.forFile(file)) {
+			for (int n = 1; n <= 8; n++) {
+				StringBuilder shards = new StringBuilder();
+				for (int i = 1; i <= n; i++) {
+					try (BufferedReader in = index.openShard(i, n)) {
+						String shard = in.lines().collect(Collectors.joining("\n", "", "\n"));
+						if (index.shard(i, n)[0] > index.shard(i, n)[1]) {
+							assertEquals("\n", shard);
+						} else if (i > 1) {
+							assertTrue(shard.startsWith(PREFIX));
+							shards.append(shard.substring(PREFIX.length()));
+						} else {
+							shards.append(shard);
+						}
+					}
+				}
+				assertEquals(rdf, shards.toString());
+			}
+		}
+	}
+
+	// the index is rebuilt once the file has changed
+	@Test
+	void stale(@TempDir Path dir) throws IOException {
+		File file = write(dir, "test.conll", CONLL);
+		SentenceIndex.forFile(file).close();
+		write(dir, "test.conll", "1\tx\n\n" + CONLL);
+		try (SentenceIndex index = SentenceIndex.forFile(file)) {
+			assertEquals(5, index.size());
+			assertEquals("1\tx\n\n", index.read(1));
+		}
+		try (SentenceIndex index = SentenceIndex.forFile(file)) {
+			assertEquals(5, index.size());
+			assertEquals(5, index.getLength(1));
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SentencePipeTest {
+	@Test
+	void endOfStream() throws IOException {
+		SentencePipe pipe = new SentencePipe(2);
+		ParsedSentence sentence = new ParsedSentence("");
+		pipe.put(sentence);
+		pipe.close();
+		assertSame(sentence, pipe.take());
+		assertNull(pipe.take());
+		assertNull(pipe.take());
+	}
+
+	// a sender waiting on a full pipe gives up once the receiver has failed
+	@Test
+	void abort() throws IOException {
+		SentencePipe pipe = new SentencePipe(1);
+		pipe.put(new ParsedSentence(""));
+		assertEquals(1, pipe.size());
+		assertEquals(1, pipe.capacity());
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				// abort right away
+			}
+			pipe.abort();
+		}).start();
+		assertThrows(IOException.class, () -> pipe.put(new ParsedSentence("")));
+		// and a waiting receiver once the sender has failed
+		SentencePipe empty = new SentencePipe(1);
+		empty.abort();
+		assertThrows(IOException.class, () -> empty.take());
+	}
+
+	// extractor and updater connected by a SentencePipe produce the same graphs as connected by Turtle text
+	@Test
+	void sameAsTurtle() throws IOException, ParseException {
+		String viaTurtle = run(false);
+		String viaPipe = run(true);
+		assertTrue(viaPipe.contains("# sent_id = 2"));
+		Model expected = ModelFactory.createDefaultModel().read(new StringReader(viaTurtle), null, "TTL");
+		Model actual = ModelFactory.createDefaultModel().read(new StringReader(viaPipe), null, "TTL");
+		assertTrue(expected.isIsomorphicWith(actual));
+	}
+
+	// comments after the last sentence are handed over as a sentence without triples, which has no id for -graphsout
+	@Test
+	void trailingComments(@TempDir Path dir) throws IOException, ParseException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractor();
+		extractor.setBaseURI(TestData.BASE_URI);
+		extractor.setColumns(Arrays.asList(TestData.COLUMNS));
+		extractor.setInputStream(new BufferedReader(new StringReader("# no sentence\n")));
+		SentencePipe sentences = new SentencePipe();
+		extractor.setSentenceOutput(sentences);
+		extractor.processSentenceStream();
+
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", 1);
+		updater.activateGraphsOut(dir.toString(), Collections.<String>emptyList());
+		updater.setSentenceInput(sentences);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		updater.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		updater.processSentenceStream();
+		assertTrue(out.toString("UTF-8").contains("# no sentence"));
+		assertEquals(0, updater.getGraphOutputSentences().length);
+	}
+
+	private static String run(boolean pipe) throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", 2);
+		Triple<String, String, String> update = new ImmutableTriple<String, String, String>("",
+				"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"
+				+ "DELETE { ?w conll:ID ?id } WHERE { ?w conll:ID ?id }", "1");
+		updater.parseUpdates(Collections.singletonList(update));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		updater.setOutputStream(new PrintStream(out, true, "UTF-8"));
+
+		if (pipe) {
+			CoNLLStreamExtractor extractor = new CoNLLStreamExtractor();
+			extractor.setBaseURI(TestData.BASE_URI);
+			extractor.setColumns(Arrays.asList(TestData.COLUMNS));
+			extractor.setInputStream(new BufferedReader(new StringReader(TestData.CONLL)));
+			SentencePipe sentences = new SentencePipe();
+			extractor.setSentenceOutput(sentences);
+			updater.setSentenceInput(sentences);
+			// the sentences fit into the pipe, no need for a second thread
+			extractor.processSentenceStream();
+		} else {
+			updater.setInputStream(new BufferedReader(new StringReader(TestData.conllRdf())));
+		}
+		updater.processSentenceStream();
+		return out.toString("UTF-8");
+	}
+}
@@ -0,0 +1,63 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class SentenceReorderBufferTest {
+	@Test
+	void emitsInReservationOrder() throws IOException {
+		SentenceReorderBuffer<String> buffer = new SentenceReorderBuffer<String>(4);
+		long first = buffer.reserve();
+		long second = buffer.reserve();
+		long third = buffer.reserve();
+		buffer.complete(third, "3");
+		buffer.complete(second, "2");
+		assertNull(buffer.poll());
+		buffer.complete(first, "1");
+		assertEquals("1", buffer.poll());
+		assertEquals("2", buffer.poll());
+		assertEquals("3", buffer.take());
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.take());
+	}
+
+	// a sentence consisting of a bare number must not be mistaken for a placeholder
+	@Test
+	void numericSentence() throws IOException {
+		SentenceReorderBuffer<String> buffer = new SentenceReorderBuffer<String>(2);
+		buffer.complete(buffer.reserve(), "0");
+		assertEquals("0", buffer.poll());
+	}
+
+	@Test
+	void boundedCapacity() throws IOException {
+		SentenceReorderBuffer<String> buffer = new SentenceReorderBuffer<String>(2);
+		buffer.reserve();
+		buffer.reserve();
+		assertTrue(buffer.isFull());
+		assertThrows(IllegalStateException.class, () -> buffer.reserve());
+		buffer.complete(0, "a");
+		assertEquals("a", buffer.poll());
+		assertFalse(buffer.isFull());
+		// slots are reused once the oldest sentence has been emitted
+		assertEquals(2, buffer.reserve());
+	}
+
+	@Test
+	void takeWaitsForWorker() throws IOException {
+		SentenceReorderBuffer<String> buffer = new SentenceReorderBuffer<String>(1);
+		long seq = buffer.reserve();
+		new Thread(() -> buffer.complete(seq, "done")).start();
+		assertEquals("done", buffer.take());
+	}
+
+	@Test
+	void failedSentence() {
+		SentenceReorderBuffer<String> buffer = new SentenceReorderBuffer<String>(1);
+		buffer.fail(buffer.reserve(), new Error("broken"));
+		assertThrows(IOException.class, () -> buffer.take());
+	}
+}
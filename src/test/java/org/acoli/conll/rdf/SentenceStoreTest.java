@@ -0,0 +1,62 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Path;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SentenceStoreTest {
+	// each sentence is stored as a named graph, also across batches, and the corpus can be queried as a whole
+	@Test
+	void storeSentences(@TempDir Path dir) throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] {
+				"-threads", "2", "-store", dir.toString() });
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		updater.setInputStream(new BufferedReader(new StringReader(TestData.conllRdf())));
+		updater.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		updater.processSentenceStream();
+		assertEquals(3, updater.getStore().size());
+
+		try (SentenceStore store = new SentenceStore(dir.toString(), 2)) {
+			assertEquals("?g\n<http://example.org/test#s1_0>\n<http://example.org/test#s2_0>\n<http://example.org/test#s3_0>\n",
+					select(store, "SELECT DISTINCT ?g WHERE { GRAPH ?g { ?s ?p ?o } } ORDER BY ?g"));
+			assertEquals("?word\t?n\n\"dog\"\t2\n",
+					select(store, "PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"
+							+ "SELECT ?word (COUNT(*) AS ?n) WHERE { ?w conll:WORD ?word } GROUP BY ?word HAVING (COUNT(*) > 1)"));
+		}
+	}
+
+	// sentences without a nif:Sentence are named per run, a second run does not merge into the graphs of the first
+	@Test
+	void storeUnnamedSentences(@TempDir Path dir) throws IOException {
+		Model sentence = ModelFactory.createDefaultModel();
+		sentence.add(sentence.createResource("http://example.org/test#w1"), RDFS.label, "dog");
+		for (int run = 0; run < 2; run++) {
+			try (SentenceStore store = new SentenceStore(dir.toString())) {
+				store.add(sentence);
+			}
+		}
+		try (SentenceStore store = new SentenceStore(dir.toString())) {
+			assertEquals("?n\n2\n", select(store, "SELECT (COUNT(DISTINCT ?g) AS ?n) WHERE { GRAPH ?g { ?s ?p ?o } }"));
+		}
+	}
+
+	private static String select(SentenceStore store, String query) throws UnsupportedEncodingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		store.select(QueryFactory.create(query), out);
+		return out.toString("UTF-8");
+	}
+}
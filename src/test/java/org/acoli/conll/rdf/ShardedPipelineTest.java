@@ -0,0 +1,86 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.log4j.Level;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ShardedPipelineTest {
+	private static final String CONLL = TestData.CONLL
+			+ "<s>\n"
+			+ "1\tBarks\tVBZ\t0\n"
+			+ "</s>\n"
+			+ "# a comment between sentences\n"
+			+ "\n"
+			+ "\n"
+			+ "1\tA\tDT\t2\n"
+			+ "2\tcat\tNN\t0\n"
+			+ "\n"
+			+ "1\tMeows\tVBZ\t0\n";
+
+	// the same sentence IDs and the same output, in the same order, as with one thread per component
+	@Test
+	void sameAsStream(@TempDir Path dir) throws IOException, ParseException, InterruptedException {
+		Files.write(dir.resolve("in.conll"), CONLL.getBytes(StandardCharsets.UTF_8));
+		String stream = run(dir, "stream", "");
+		assertTrue(stream.contains(":s4_1"));
+		assertEquals(stream, run(dir, "sharded", ", \"workers\" : 3, \"shardSize\" : 1"));
+		assertEquals(stream, run(dir, "graph", ", \"workers\" : 2, \"shardSize\" : 2, \"transport\" : \"turtle\""));
+	}
+
+	// a pipeline that needs context across sentences runs in one stream
+	@Test
+	void fallBack(@TempDir Path dir) throws IOException, ParseException {
+		Files.write(dir.resolve("in.conll"), CONLL.getBytes(StandardCharsets.UTF_8));
+		Files.write(dir.resolve("lookahead.json"), config(dir, "out", ", \"workers\" : 2", ", \"lookahead\" : 1")
+				.getBytes(StandardCharsets.UTF_8));
+		CoNLLRDFManager manager = new CoNLLRDFManager();
+		manager.readConfig(dir.resolve("lookahead.json").toString());
+		manager.buildComponentStack();
+		assertNull(manager.getShardedPipeline());
+	}
+
+	// the queue monitor of a pipeline with one thread per component ends with the components
+	@Test
+	void monitorStops(@TempDir Path dir) throws IOException, ParseException, InterruptedException {
+		Files.write(dir.resolve("in.conll"), CONLL.getBytes(StandardCharsets.UTF_8));
+		Level level = CoNLLRDFManager.LOG.getLevel();
+		CoNLLRDFManager.LOG.setLevel(Level.DEBUG);
+		try {
+			run(dir, "monitor", "");
+		} finally {
+			CoNLLRDFManager.LOG.setLevel(level);
+		}
+		for (Thread t : Thread.getAllStackTraces().keySet())
+			assertNotEquals("queue-monitor", t.getName());
+	}
+
+	private static String run(Path dir, String name, String options) throws IOException, ParseException, InterruptedException {
+		Files.write(dir.resolve(name + ".json"), config(dir, name, options, "").getBytes(StandardCharsets.UTF_8));
+		CoNLLRDFManager manager = new CoNLLRDFManager();
+		manager.readConfig(dir.resolve(name + ".json").toString());
+		manager.buildComponentStack();
+		assertEquals(!options.isEmpty(), manager.getShardedPipeline() != null);
+		manager.start();
+		manager.join();
+		manager.output.close();
+		return new String(Files.readAllBytes(dir.resolve(name + ".ttl")), StandardCharsets.UTF_8);
+	}
+
+	private static String config(Path dir, String name, String options, String updaterOptions) {
+		return "{ \"input\" : \"" + dir.resolve("in.conll") + "\", \"output\" : \"" + dir.resolve(name + ".ttl") + "\"" + options
+				+ ", \"pipeline\" : [\n"
+				+ "{ \"class\" : \"CoNLLStreamExtractor\", \"baseURI\" : \"http://example.org/test#\", \"columns\" : [\"ID\", \"WORD\", \"POS\", \"HEAD\"] },\n"
+				+ "{ \"class\" : \"CoNLLRDFUpdater\", \"updates\" : [ {\"path\" : \"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#> "
+				+ "DELETE { ?w conll:ID ?id } WHERE { ?w conll:ID ?id }\", \"iter\" : \"1\"} ]" + updaterOptions + " },\n"
+				+ "{ \"class\" : \"CoNLLRDFFormatter\", \"modules\" : [ {\"mode\" : \"CONLLRDF\", \"columns\" : [\"WORD\", \"POS\", \"HEAD\"]} ] }\n"
+				+ "] }";
+	}
+}
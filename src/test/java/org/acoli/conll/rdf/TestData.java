@@ -0,0 +1,46 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import org.apache.commons.cli.ParseException;
+
+/**
+ * The small CoNLL corpus that several tests run through a pipeline, and its conversion to CoNLL-RDF.
+ */
+final class TestData {
+	static final String BASE_URI = "http://example.org/test#";
+	static final String[] COLUMNS = { "ID", "WORD", "POS", "HEAD" };
+	/** three sentences with a <code># sent_id</code> each, "dog" occurs twice */
+	static final String CONLL = "# sent_id = 1\n"
+			+ "1\tThe\tDT\t2\n"
+			+ "2\tdog\tNN\t0\n"
+			+ "\n"
+			+ "# sent_id = 2\n"
+			+ "1\tBarks\tVBZ\t0\n"
+			+ "\n"
+			+ "# sent_id = 3\n"
+			+ "1\tdog\tNN\t0\n"
+			+ "\n";
+
+	private TestData() {
+	}
+
+	/**
+	 * @return {@link #CONLL} as CoNLL-RDF Turtle, as written by CoNLLStreamExtractor
+	 */
+	static String conllRdf() throws IOException, ParseException {
+		String[] args = new String[COLUMNS.length + 1];
+		args[0] = BASE_URI;
+		System.arraycopy(COLUMNS, 0, args, 1, COLUMNS.length);
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(args);
+		extractor.setInputStream(new BufferedReader(new StringReader(CONLL)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		extractor.setOutputStream(new PrintStream(out, true, "UTF-8"));
+		extractor.processSentenceStream();
+		return out.toString("UTF-8");
+	}
+}
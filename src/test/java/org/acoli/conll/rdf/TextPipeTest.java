@@ -0,0 +1,51 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+public class TextPipeTest {
+	// the text arrives unchanged, the pipe holds one chunk per sentence
+	@Test
+	void sentences() throws IOException {
+		TextPipe pipe = new TextPipe(4);
+		PrintStream out = pipe.output();
+		out.print("# sent_id = 1\n:s1 a nif:Sentence .\n\n");
+		out.print("# sent_id = 2\n");
+		out.print(":s2 a nif:Sentence .\n\n");
+		assertEquals(2, pipe.size());
+		assertEquals(4, pipe.capacity());
+		out.print("rest");
+		out.flush();
+		assertEquals(3, pipe.size());
+		out.close();
+
+		BufferedReader in = pipe.input();
+		StringBuilder text = new StringBuilder();
+		for (String line = in.readLine(); line != null; line = in.readLine())
+			text.append(line).append("\n");
+		assertEquals("# sent_id = 1\n:s1 a nif:Sentence .\n\n# sent_id = 2\n:s2 a nif:Sentence .\n\nrest\n", text.toString());
+		in.close();
+	}
+
+	// a sender waiting on a full pipe gives up once the receiver stops reading
+	@Test
+	void receiverClosed() throws IOException {
+		TextPipe pipe = new TextPipe(1);
+		pipe.output().print("sentence 1\n\n");
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+				pipe.input().close();
+			} catch (InterruptedException | IOException e) {
+				fail(e);
+			}
+		}).start();
+		pipe.output().print("sentence 2\n\n");
+		assertTrue(pipe.output().checkError());
+	}
+}
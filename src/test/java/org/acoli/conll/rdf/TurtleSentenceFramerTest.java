@@ -0,0 +1,60 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+public class TurtleSentenceFramerTest {
+	private static TurtleSentenceFramer framer(String input) {
+		return new TurtleSentenceFramer(new BufferedReader(new StringReader(input)));
+	}
+
+	@Test
+	void carriesOverPrefixes() throws IOException {
+		TurtleSentenceFramer framer = framer(
+				"@prefix : <http://x.org/s#> .\n"
+				+ "# sent 1\n"
+				+ ":s1_0 a :Sentence .\n"
+				+ "\n"
+				+ "# sent 2\n"
+				+ ":s2_0 a :Sentence .\n");
+		assertEquals("@prefix : <http://x.org/s#> .\n# sent 1\n:s1_0 a :Sentence .\n\n", framer.next());
+		assertFalse(framer.isFinal());
+		assertEquals("@prefix : <http://x.org/s#> .\n# sent 2\n:s2_0 a :Sentence .\n", framer.next());
+		assertTrue(framer.isFinal());
+		assertNull(framer.next());
+	}
+
+	@Test
+	void replacesPrefixes() throws IOException {
+		TurtleSentenceFramer framer = framer(
+				"@prefix : <http://x.org/a#> .\n"
+				+ ":s1_0 a :Sentence .\n"
+				+ "@prefix : <http://x.org/b#> .\n"
+				+ ":s1_0 a :Sentence .\n"
+				+ "# sent 3\n"
+				+ ":s1_0 a :Sentence .\n");
+		framer.next();
+		assertEquals("@prefix : <http://x.org/b#> .\n:s1_0 a :Sentence .\n", framer.next());
+		assertEquals("@prefix : <http://x.org/b#> .\n# sent 3\n:s1_0 a :Sentence .\n", framer.next());
+		assertTrue(framer.isFinal());
+	}
+
+	@Test
+	void normalizesWhitespace() throws IOException {
+		TurtleSentenceFramer framer = framer("  :s1_1\t :WORD \t\t\"a  b\" ;\t\n \t\n");
+		assertEquals(":s1_1 :WORD \"a b\" ;\n\n", framer.next());
+		assertTrue(framer.isFinal());
+	}
+
+	@Test
+	void emptyInput() throws IOException {
+		TurtleSentenceFramer framer = framer("");
+		assertEquals("", framer.next());
+		assertTrue(framer.isFinal());
+	}
+}
@@ -0,0 +1,77 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.cli.ParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class UpdateMetricsTest {
+	// percentiles are the end of the bucket of the latency at that rank, capped by the maximum
+	@Test
+	void percentiles() {
+		UpdateMetrics metrics = new UpdateMetrics("test", 1);
+		for (long nanos = 1; nanos <= 100; nanos++)
+			metrics.record(nanos * 1000, 1, 0, 0);
+		assertEquals(100, metrics.getCount());
+		assertEquals(50500, metrics.getMeanNanos());
+		assertEquals(100000, metrics.getMaxNanos());
+		assertTrue(metrics.getP50Nanos() >= 50000 && metrics.getP50Nanos() <= 50000 * 1.25);
+		assertTrue(metrics.getP90Nanos() >= 90000 && metrics.getP90Nanos() <= 90000 * 1.25);
+		assertEquals(100000, metrics.getP99Nanos());
+		assertEquals(Collections.singletonMap(1, 100L), metrics.getIterationHistogram());
+	}
+
+	// each value falls into the bucket that ends at or above it, and the next bucket starts right after
+	@Test
+	void buckets() {
+		for (long nanos : new long[] { 0, 1, 3, 4, 7, 8, 9, 10, 1000, 123456789, Long.MAX_VALUE }) {
+			int bucket = UpdateMetrics.bucket(nanos);
+			assertTrue(UpdateMetrics.bucketEnd(bucket) >= nanos);
+			assertTrue(bucket == 0 || UpdateMetrics.bucketEnd(bucket - 1) < nanos);
+		}
+	}
+
+	// an update that reaches its fixpoint in the second iteration, the report is written at the end of the stream
+	@Test
+	void report(@TempDir Path dir) throws IOException, ParseException {
+		Path update = dir.resolve("word.sparql");
+		Files.write(update, ("PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"
+				+ "INSERT { ?w a conll:Word } WHERE { ?w conll:WORD ?word }").getBytes(StandardCharsets.UTF_8));
+		Path report = dir.resolve("metrics.json");
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] {
+				"-threads", "2", "-metrics", report.toString(), "-custom", "-updates", update + "{*}" });
+		updater.setInputStream(new BufferedReader(new StringReader(TestData.conllRdf())));
+		updater.setOutputStream(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+		updater.processSentenceStream();
+
+		List<UpdateMetrics> metrics = updater.getUpdateMetrics();
+		assertEquals(1, metrics.size());
+		assertEquals(3, metrics.get(0).getCount());
+		assertEquals(6, metrics.get(0).getIterations());
+		assertEquals(Collections.singletonMap(2, 3L), metrics.get(0).getIterationHistogram());
+		assertEquals(4, metrics.get(0).getTriplesAdded());
+		assertEquals(0, metrics.get(0).getTriplesRemoved());
+		assertEquals(0, metrics.get(0).getMaxIterateHits());
+
+		JsonNode json = new ObjectMapper().readTree(report.toFile());
+		assertEquals(update.toString(), json.get(0).get("name").asText());
+		assertEquals(3, json.get(0).get("count").asLong());
+		assertEquals(3, json.get(0).get("iterationHistogram").get("2").asLong());
+	}
+}